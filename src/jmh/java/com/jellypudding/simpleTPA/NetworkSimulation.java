@@ -0,0 +1,495 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Headless simulation of several servers linked through an {@link InMemoryTransport.Hub}, for
+ * catching requests that go missing or linger on one side when a change touches the
+ * cross-server messages.
+ *
+ * <p>Each server has its own {@link RequestLifecycle} and {@link CrossServerNetwork}, wired up
+ * the way {@link SimpleTPA} wires them, and flushes its network at the end of every tick. The
+ * hub stands in for the proxy: a player it is asked to send elsewhere joins the other server
+ * at the start of the next tick and then quits the old one.
+ *
+ * <p>It first walks through a request to a player on another server being created, denied,
+ * cancelled, accepted, and dropped because one of the players left, even before it arrived.
+ * Then stub players join, quit, switch servers and run /tpa, /tpaccept, /tpdeny and
+ * /tpacancel at random, and after every tick it checks that:
+ * <ul>
+ *   <li>no server resolves a request twice;</li>
+ *   <li>every server knows which other server each online player is on;</li>
+ *   <li>every pending request has a player on its server, and the other party is online;</li>
+ *   <li>a player sent over after an accept is teleported to the player who accepted;</li>
+ *   <li>after draining, every request was resolved and nothing is left on any server.</li>
+ * </ul>
+ *
+ * <p>Run with {@code ./gradlew simulate}, which also runs {@link RequestLifecycleSimulation};
+ * the process exits with status 1 if any check fails.
+ */
+public final class NetworkSimulation {
+
+    private static final String[] SERVERS = {"lobby", "survival", "creative"};
+    private static final int PLAYERS = 300;
+    private static final int TICKS = 2_000;
+
+    private static final long TIMEOUT_TICKS = 200L;
+    private static final PluginSettings.Timeout TIMEOUT = new PluginSettings.Timeout(TIMEOUT_TICKS, "10 seconds");
+    private static final int COOLDOWN_TICKS = 40;
+    private static final int MAX_INCOMING_PER_TARGET = 5;
+    private static final int MAX_PENDING_TOTAL = 10_000;
+
+    // Chance per tick that an online player runs a command and that an offline one joins.
+    private static final double COMMAND_CHANCE = 0.05;
+    private static final double JOIN_CHANCE = 0.02;
+
+    private static final Logger LOGGER = Logger.getLogger(NetworkSimulation.class.getName());
+
+    private final Random random;
+    private final InMemoryTransport.Hub hub = new InMemoryTransport.Hub(this::queueMove);
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    private final List<Player> players;
+    private final Map<UUID, Integer> indexes = new HashMap<>();
+
+    // Each player's current login and server, or null while they are offline.
+    private final Player[] connections;
+    private final Node[] locations;
+
+    // Players the hub was asked to send to another server, moved at the start of the next tick.
+    private final List<Move> moves = new ArrayList<>();
+
+    // How many times each request has been resolved, across every server's own copies.
+    private final Map<TeleportRequest, Integer> resolutions = new IdentityHashMap<>();
+    private final Set<TeleportRequest> created = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final List<String> failures = new ArrayList<>();
+    private int arrivals;
+
+    private NetworkSimulation(int playerCount, long seed) {
+        random = new Random(seed);
+        players = StubPlayers.create(playerCount, seed);
+        connections = new Player[playerCount];
+        locations = new Node[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            indexes.put(players.get(i).getUniqueId(), i);
+        }
+        for (String server : SERVERS) {
+            Node node = new Node(server);
+            nodes.put(node.network.getServerName(), node);
+        }
+        for (Node node : nodes.values()) {
+            node.lifecycle.openNetwork(node.network);
+        }
+        flush();
+    }
+
+    public static void main(String[] args) {
+        List<String> failures = new ArrayList<>(new NetworkSimulation(4, 1L).walkThrough());
+
+        NetworkSimulation simulation = new NetworkSimulation(PLAYERS, 2L);
+        simulation.run();
+        failures.addAll(simulation.failures);
+
+        if (!failures.isEmpty()) {
+            failures.stream().limit(20).forEach(failure -> System.out.println("FAILED: " + failure));
+            System.out.println(failures.size() + " check(s) failed.");
+            System.exit(1);
+        }
+        System.out.println("All checks passed.");
+    }
+
+    /**
+     * Sends requests between the servers by hand and checks both sides after each step.
+     */
+    private List<String> walkThrough() {
+        Node lobby = nodes.get("lobby");
+        Node survival = nodes.get("survival");
+        Node creative = nodes.get("creative");
+        join(0, lobby);
+        join(1, survival);
+        join(2, creative);
+        join(3, lobby);
+        endTick();
+        checkState("after joining");
+
+        // Player 0 on the lobby asks player 1 on survival, who denies it.
+        TeleportRequest sent = tpa(0, 1);
+        endTick();
+        expect(sent != null && pendingOn(survival, 0, 1), "a request to another server arrives there");
+        survival.lifecycle.deny(players.get(0).getUniqueId(), players.get(1).getUniqueId());
+        endTick();
+        expect(!pendingOn(lobby, 0, 1) && !pendingOn(survival, 0, 1), "a denied request is gone from both servers");
+
+        // Asked again, then cancelled by the requester.
+        advance(COOLDOWN_TICKS);
+        tpa(0, 1);
+        endTick();
+        lobby.lifecycle.cancel(players.get(0).getUniqueId(), players.get(1).getUniqueId());
+        endTick();
+        expect(!pendingOn(lobby, 0, 1) && !pendingOn(survival, 0, 1), "a cancelled request is gone from both servers");
+
+        // Player 2 on creative asks player 1, then leaves.
+        tpa(2, 1);
+        endTick();
+        expect(pendingOn(survival, 2, 1), "a second request arrives");
+        quit(2);
+        endTick();
+        expect(!pendingOn(survival, 2, 1), "a request is dropped when its requester leaves");
+
+        // Player 3 asks player 1, who leaves.
+        tpa(3, 1);
+        endTick();
+        expect(pendingOn(survival, 3, 1), "a third request arrives");
+        quit(1);
+        endTick();
+        expect(!pendingOn(lobby, 3, 1), "a request is dropped when its target leaves");
+
+        // Player 3 asks player 1 again, who leaves before the request reaches their server.
+        join(1, survival);
+        advance(COOLDOWN_TICKS);
+        endTick();
+        tpa(3, 1);
+        quit(1);
+        endTick();
+        expect(!pendingOn(lobby, 3, 1), "a request is dropped when its target left before it arrived");
+
+        // Player 0 asks player 1 again, who accepts, so player 0 is sent over and teleported on arrival.
+        join(1, survival);
+        advance(COOLDOWN_TICKS);
+        endTick();
+        tpa(0, 1);
+        endTick();
+        accept(survival, survival.lifecycle.getStore().get(players.get(0).getUniqueId(), players.get(1).getUniqueId()));
+        endTick();
+        applyMoves();
+        endTick();
+        expect(locations[0] == survival && arrivals == 1, "an accepted requester is sent to the target's server");
+        expect(lobby.network.getPlayer(players.get(0).getUniqueId()) != null, "the old server lists the requester on the new one");
+        checkState("after the walk-through");
+
+        drain();
+        return failures;
+    }
+
+    private void run() {
+        for (int tick = 0; tick < TICKS; tick++) {
+            applyMoves();
+            for (Node node : nodes.values()) {
+                node.lifecycle.tick();
+            }
+            for (int i = 0; i < players.size(); i++) {
+                act(i);
+            }
+            endTick();
+            if (tick % 20 == 0) {
+                for (Node node : nodes.values()) {
+                    node.lifecycle.sweep(node.lifecycle.currentTick());
+                }
+            }
+            checkState("tick " + tick);
+        }
+        drain();
+        System.out.printf("%d players on %d servers: %d requests over %d ticks, %d players sent over after an accept%n",
+            players.size(), nodes.size(), created.size(), TICKS, arrivals);
+    }
+
+    private void act(int index) {
+        if (connections[index] == null) {
+            if (random.nextDouble() < JOIN_CHANCE) {
+                join(index, randomNode());
+            }
+            return;
+        }
+        if (random.nextDouble() >= COMMAND_CHANCE) {
+            return;
+        }
+
+        Node node = locations[index];
+        UUID uuid = players.get(index).getUniqueId();
+        int roll = random.nextInt(100);
+        if (roll < 40) {
+            tpa(index, random.nextInt(players.size()));
+        } else if (roll < 60) {
+            accept(node, pick(node.lifecycle.getStore().getIncoming(uuid)));
+        } else if (roll < 70) {
+            TeleportRequest request = pick(node.lifecycle.getStore().getIncoming(uuid));
+            if (request != null) {
+                node.lifecycle.deny(request);
+            }
+        } else if (roll < 80) {
+            TeleportRequest request = pick(node.lifecycle.getStore().getOutgoing(uuid));
+            if (request != null) {
+                node.lifecycle.cancel(request);
+            }
+        } else if (roll < 90) {
+            quit(index);
+        } else {
+            queueMove(uuid, randomNode().network.getServerName());
+        }
+    }
+
+    // Mirrors SimpleTPA.handleTpaCommand for a target on this server or another, minus messages.
+    private TeleportRequest tpa(int index, int targetIndex) {
+        Node node = locations[index];
+        UUID uuid = players.get(index).getUniqueId();
+        UUID target = players.get(targetIndex).getUniqueId();
+        RequestLifecycle lifecycle = node.lifecycle;
+        int now = lifecycle.currentTick();
+        if (targetIndex == index || lifecycle.getCooldowns().remaining(uuid, now) > 0) {
+            return null;
+        }
+
+        if (sessionOn(node, target) == null) {
+            if (!node.network.isRemote(target) || lifecycle.admit(uuid, target, MAX_PENDING_TOTAL, now) != null) {
+                return null;
+            }
+            return lifecycle.createRemote(uuid, players.get(index).getName(), target, COOLDOWN_TICKS, TIMEOUT, now);
+        }
+
+        if (lifecycle.admit(uuid, target, MAX_PENDING_TOTAL, now) != null) {
+            return null;
+        }
+        TeleportRequest request = lifecycle.create(uuid, target, false);
+        if (request == null || request.isResolved()) {
+            return request;
+        }
+        lifecycle.start(request, COOLDOWN_TICKS, TIMEOUT, now);
+        lifecycle.enforceInboxCap(target, MAX_INCOMING_PER_TARGET);
+        return request;
+    }
+
+    // Accepts the request and, if the requester is on another server, remembers who they should arrive to.
+    private void accept(Node node, TeleportRequest request) {
+        if (request != null && node.lifecycle.accept(request) && sessionOn(node, request.getRequester()) == null) {
+            node.accepted.computeIfAbsent(request.getRequester(), key -> new HashSet<>()).add(request.getTarget());
+        }
+    }
+
+    private void join(int index, Node node) {
+        connections[index] = StubPlayers.create(players.get(index).getUniqueId(), players.get(index).getName());
+        locations[index] = node;
+        UUID arrival = node.lifecycle.join(connections[index]);
+        if (arrival != null) {
+            checkArrival(index, node, arrival);
+        }
+    }
+
+    private void quit(int index) {
+        Node node = locations[index];
+        Player connection = connections[index];
+        connections[index] = null;
+        locations[index] = null;
+        node.lifecycle.leave(connection);
+    }
+
+    private void queueMove(UUID player, String server) {
+        moves.add(new Move(player, server));
+    }
+
+    // Joins each player sent elsewhere to their new server, then handles their quit from the old one.
+    // Like the proxy, this ignores a second move for a player who is already being moved.
+    private void applyMoves() {
+        List<Move> due = new ArrayList<>(moves);
+        moves.clear();
+        Set<UUID> moved = new HashSet<>();
+        for (Move move : due) {
+            int index = indexes.get(move.player());
+            Node from = locations[index];
+            Node to = nodes.get(move.server());
+            if (from == null || from == to || !moved.add(move.player())) {
+                continue;
+            }
+            Player previous = connections[index];
+            join(index, to);
+            from.lifecycle.leave(previous);
+        }
+    }
+
+    // A player who arrives to finish an accepted request must be going to the player who accepted it.
+    private void checkArrival(int index, Node node, UUID target) {
+        Set<UUID> accepted = node.accepted.get(players.get(index).getUniqueId());
+        if (accepted == null || !accepted.contains(target)) {
+            failures.add(players.get(index).getName() + " arrived on " + node.network.getServerName()
+                + " to be teleported to someone who never accepted their request");
+            return;
+        }
+        arrivals++;
+    }
+
+    // Sends everything each server queued this tick. Handling a message can queue a reply, such as
+    // a server announcing its players after a hello, so the replies go out in a second round.
+    private void endTick() {
+        flush();
+        flush();
+    }
+
+    private void flush() {
+        for (Node node : nodes.values()) {
+            node.network.flush();
+        }
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            for (Node node : nodes.values()) {
+                node.lifecycle.tick();
+            }
+        }
+    }
+
+    private void checkState(String when) {
+        for (int i = 0; i < players.size(); i++) {
+            UUID uuid = players.get(i).getUniqueId();
+            for (Node node : nodes.values()) {
+                boolean here = locations[i] == node;
+                if (sessionOn(node, uuid) != (here ? connections[i] : null)) {
+                    failures.add(when + ": " + players.get(i).getName() + " has the wrong session on " + node.network.getServerName());
+                }
+                CrossServerNetwork.RemotePlayer listed = node.network.getPlayer(uuid);
+                String expected = locations[i] == null || here ? null : locations[i].network.getServerName();
+                if (expected == null ? listed != null : listed == null || !listed.server().equals(expected)) {
+                    failures.add(when + ": " + node.network.getServerName() + " lists " + players.get(i).getName() + " on "
+                        + (listed != null ? listed.server() : "no server") + " instead of " + (expected != null ? expected : "none"));
+                }
+            }
+        }
+
+        for (Node node : nodes.values()) {
+            List<TeleportRequest> pending = node.lifecycle.getStore().getAll();
+            if (node.lifecycle.getExpiryWheel().size() != pending.size()) {
+                failures.add(when + ": " + node.network.getServerName() + "'s expiry wheel holds "
+                    + node.lifecycle.getExpiryWheel().size() + " requests for " + pending.size() + " pending");
+            }
+            for (TeleportRequest request : pending) {
+                boolean requesterHere = sessionOn(node, request.getRequester()) != null;
+                boolean targetHere = sessionOn(node, request.getTarget()) != null;
+                if (!requesterHere && !targetHere) {
+                    failures.add(when + ": " + node.network.getServerName() + " keeps " + describe(request) + " with neither player on it");
+                } else if (!isOnline(request.getRequester()) || !isOnline(request.getTarget())) {
+                    failures.add(when + ": " + node.network.getServerName() + " keeps " + describe(request) + " for a player who left");
+                }
+            }
+        }
+    }
+
+    // Lets everything run out and everyone leave, then checks nothing was left behind.
+    private void drain() {
+        applyMoves();
+        advance((int) TIMEOUT_TICKS + 1);
+        for (int i = 0; i < players.size(); i++) {
+            if (connections[i] != null) {
+                quit(i);
+            }
+        }
+        endTick();
+
+        for (Node node : nodes.values()) {
+            RequestLifecycle lifecycle = node.lifecycle;
+            lifecycle.sweep(lifecycle.currentTick() + COOLDOWN_TICKS + 1_000);
+            String server = node.network.getServerName();
+            if (lifecycle.getStore().size() != 0 || lifecycle.getExpiryWheel().size() != 0) {
+                failures.add("after draining: " + server + " still has " + lifecycle.getStore().size() + " requests");
+            }
+            if (lifecycle.getCooldowns().size() != 0 || lifecycle.getSenderLimiter().size() != 0 || lifecycle.getTargetLimiter().size() != 0) {
+                failures.add("after draining: " + server + " still has cooldowns or rate limit buckets");
+            }
+            if (lifecycle.getSessions().size() != 0) {
+                failures.add("after draining: " + server + " still has " + lifecycle.getSessions().size() + " sessions");
+            }
+        }
+        for (TeleportRequest request : created) {
+            if (!resolutions.containsKey(request)) {
+                failures.add("after draining: " + describe(request) + " was never resolved");
+            }
+        }
+    }
+
+    private boolean pendingOn(Node node, int requester, int target) {
+        return node.lifecycle.getStore().contains(players.get(requester).getUniqueId(), players.get(target).getUniqueId());
+    }
+
+    private void expect(boolean condition, String what) {
+        if (!condition) {
+            failures.add("walk-through: expected that " + what);
+        }
+    }
+
+    private boolean isOnline(UUID uuid) {
+        return connections[indexes.get(uuid)] != null;
+    }
+
+    private static Player sessionOn(Node node, UUID uuid) {
+        return node.lifecycle.getSessions().getPlayer(uuid);
+    }
+
+    private Node randomNode() {
+        return nodes.get(SERVERS[random.nextInt(SERVERS.length)]);
+    }
+
+    private TeleportRequest pick(List<TeleportRequest> requests) {
+        return requests.isEmpty() ? null : requests.get(random.nextInt(requests.size()));
+    }
+
+    private String describe(TeleportRequest request) {
+        return players.get(indexes.get(request.getRequester())).getName() + " -> "
+            + players.get(indexes.get(request.getTarget())).getName();
+    }
+
+    private record Move(UUID player, String server) {
+    }
+
+    /**
+     * One server: its request lifecycle and its link to the others.
+     */
+    private final class Node implements RequestLifecycle.Listener {
+
+        private final RequestLifecycle lifecycle = new RequestLifecycle(this);
+        private final CrossServerNetwork network;
+
+        // Requesters on other servers, and the players here who accepted their requests.
+        private final Map<UUID, Set<UUID>> accepted = new HashMap<>();
+
+        Node(String server) {
+            network = new CrossServerNetwork(server, new InMemoryTransport(hub),
+                (origin, message) -> lifecycle.receive(origin, message, MAX_INCOMING_PER_TARGET), LOGGER);
+            lifecycle.getSenderLimiter().configure(5, 100);
+            lifecycle.getTargetLimiter().configure(10, 20);
+        }
+
+        @Override
+        public void created(TeleportRequest request, long expiresAt) {
+            NetworkSimulation.this.created.add(request);
+        }
+
+        @Override
+        public void resolved(TeleportRequest request) {
+            int times = resolutions.merge(request, 1, Integer::sum);
+            if (times > 1) {
+                failures.add(network.getServerName() + " resolved " + describe(request) + " " + times + " times");
+            }
+        }
+
+        // Mirrors SimpleTPA.handleRemoteResolution: an accepted requester is sent to the target's server.
+        @Override
+        public void resolvedRemotely(String origin, NetworkMessage.Type type, TeleportRequest request) {
+            Player requester = lifecycle.getSessions().getPlayer(request.getRequester());
+            if (type == NetworkMessage.Type.REQUEST_ACCEPT && requester != null) {
+                network.getTransport().connect(requester, origin);
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the work behind /tpa, /tpaccept, /tpacancel all, tab completion and the expiry
+ * tick with a given number of pending requests and online players.
+ *
+ * <p>Everything goes through {@link RequestLifecycle} and {@link RequestTabCompleter}, the
+ * classes {@link SimpleTPA} delegates to, in the same order as the plugin's handlers. That
+ * covers the rate limits, the inbox cap, resolve marking and tab-cache invalidation. Messages
+ * and teleports are left out. The listener does nothing, as with the default config, where the
+ * journal is off.
+ *
+ * <p>Benchmarks that remove requests put them back afterwards, so the store stays at the
+ * configured size for the whole run. Run with {@code ./gradlew jmh}; the gc profiler is
+ * enabled in the build to report allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RequestLifecycleBenchmark {
+
+    // Default request timeout (120 seconds), cooldown (10 seconds), rate limits and inbox cap.
+    private static final long TIMEOUT_TICKS = 120L * 20L;
+    private static final PluginSettings.Timeout TIMEOUT = new PluginSettings.Timeout(TIMEOUT_TICKS, "2 minutes");
+    private static final int COOLDOWN_TICKS = 10 * 20;
+    private static final int MAX_INCOMING_PER_TARGET = 20;
+
+    // Above the largest store, so the ceiling is checked but never refuses.
+    private static final int MAX_PENDING_TOTAL = 1_000_000;
+
+    // The clock starts over before it could overflow, with the cooldowns and buckets cleared to match.
+    private static final int CLOCK_LIMIT = Integer.MAX_VALUE / 2;
+
+    @Param({"10", "1000", "100000"})
+    public int pendingRequests;
+
+    @Param({"50", "500", "5000"})
+    public int onlinePlayers;
+
+    private List<Player> players;
+    private UUID[] playerIds;
+    private String[] prefixes;
+
+    private RequestLifecycle lifecycle;
+    private TeleportRequestStore store;
+    private RequestTabCompleter tabCompleter;
+
+    // Requester/target pairs of the pending requests, used to pick which ones each invocation works on.
+    private UUID[] pendingRequesters;
+    private UUID[] pendingTargets;
+    private int requestCursor;
+    private int playerCursor;
+    private int now;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Expired requests are sent again, so the expiry tick doesn't drain the store.
+        lifecycle = new RequestLifecycle(new RequestLifecycle.Listener() {
+            @Override
+            public void expired(TeleportRequest request) {
+                recreate(request.getRequester(), request.getTarget(), TIMEOUT);
+            }
+        });
+        lifecycle.getSenderLimiter().configure(5, 30 * 20);
+        lifecycle.getTargetLimiter().configure(10, 6 * 20);
+        store = lifecycle.getStore();
+        tabCompleter = lifecycle.getTabCompleter();
+
+        players = StubPlayers.create(onlinePlayers, 42L);
+        playerIds = new UUID[onlinePlayers];
+        prefixes = new String[onlinePlayers];
+        for (int i = 0; i < onlinePlayers; i++) {
+            Player player = players.get(i);
+            lifecycle.join(player);
+            playerIds[i] = player.getUniqueId();
+            // Typical tab-completion input: the first one or two letters of a name.
+            prefixes[i] = player.getName().substring(0, 1 + (i & 1)).toLowerCase();
+        }
+
+        // There can't be more pending requests than fit in every inbox.
+        int requestCount = Math.min(pendingRequests, onlinePlayers * Math.min(MAX_INCOMING_PER_TARGET, onlinePlayers - 1));
+
+        // Each target gets requests from the players after it in turn, so every pair is distinct.
+        Random random = new Random(7L);
+        pendingRequesters = new UUID[requestCount];
+        pendingTargets = new UUID[requestCount];
+        for (int i = 0; i < requestCount; i++) {
+            int target = i % onlinePlayers;
+            UUID requester = playerIds[(target + 1 + i / onlinePlayers) % onlinePlayers];
+            // Spread deadlines over the whole timeout like real traffic would.
+            recreate(requester, playerIds[target], new PluginSettings.Timeout(1L + random.nextInt((int) TIMEOUT_TICKS), ""));
+            pendingRequesters[i] = requester;
+            pendingTargets[i] = playerIds[target];
+        }
+    }
+
+    // Puts a request back without a cooldown or rate limit, as a plugin would through the API.
+    private void recreate(UUID requester, UUID target, PluginSettings.Timeout timeout) {
+        TeleportRequest request = lifecycle.create(requester, target, false);
+        if (request != null && !request.isResolved()) {
+            lifecycle.schedule(request, timeout);
+        }
+    }
+
+    private int nextRequest() {
+        int index = requestCursor;
+        requestCursor = index + 1 == pendingRequesters.length ? 0 : index + 1;
+        return index;
+    }
+
+    private int nextPlayer() {
+        int index = playerCursor;
+        playerCursor = index + 1 == onlinePlayers ? 0 : index + 1;
+        return index;
+    }
+
+    // Moves the clock past the cooldown, so every invocation takes the full creation path.
+    private int advanceClock() {
+        now += COOLDOWN_TICKS;
+        if (now > CLOCK_LIMIT) {
+            now = 0;
+            lifecycle.getCooldowns().clearAll();
+            lifecycle.getSenderLimiter().clear();
+            lifecycle.getTargetLimiter().clear();
+        }
+        return now;
+    }
+
+    /**
+     * The cooldown check, admission, creation, cooldown start, expiry scheduling and inbox cap
+     * of /tpa. The request is cancelled first so there is always a free pair to create.
+     */
+    @Benchmark
+    public TeleportRequest tpaCreate() {
+        int index = nextRequest();
+        UUID requester = pendingRequesters[index];
+        UUID target = pendingTargets[index];
+        lifecycle.cancel(requester, target);
+
+        int currentTick = advanceClock();
+        if (lifecycle.getCooldowns().remaining(requester, currentTick) > 0
+            || lifecycle.admit(requester, target, MAX_PENDING_TOTAL, currentTick) != null) {
+            recreate(requester, target, TIMEOUT);
+            return null;
+        }
+
+        TeleportRequest request = lifecycle.create(requester, target, false);
+        if (request == null || request.isResolved()) {
+            return request;
+        }
+        lifecycle.start(request, COOLDOWN_TICKS, TIMEOUT, currentTick);
+        lifecycle.enforceInboxCap(target, MAX_INCOMING_PER_TARGET);
+        return request;
+    }
+
+    /**
+     * Listing incoming requests, as /tpaccept and /tpdeny do before anything else.
+     */
+    @Benchmark
+    public List<UUID> getPendingRequesters() {
+        return store.getRequesters(playerIds[nextPlayer()]);
+    }
+
+    /**
+     * Looking up and accepting a request on /tpaccept, then re-creating it.
+     */
+    @Benchmark
+    public boolean tpaccept() {
+        int index = nextRequest();
+        UUID requester = pendingRequesters[index];
+        UUID target = pendingTargets[index];
+
+        TeleportRequest request = store.get(requester, target);
+        if (request == null || !lifecycle.accept(request)) {
+            return false;
+        }
+
+        recreate(requester, target, TIMEOUT);
+        return true;
+    }
+
+    /**
+     * Cancelling all of one player's outgoing requests on /tpacancel all, then re-creating them.
+     */
+    @Benchmark
+    public int tpacancelAll() {
+        UUID requester = playerIds[nextPlayer()];
+        List<TeleportRequest> outgoing = store.getOutgoing(requester);
+        int cancelled = 0;
+        for (TeleportRequest request : outgoing) {
+            if (lifecycle.cancel(request)) {
+                cancelled++;
+            }
+        }
+
+        for (TeleportRequest request : outgoing) {
+            recreate(request.getRequester(), request.getTarget(), TIMEOUT);
+        }
+        return cancelled;
+    }
+
+    /**
+     * Completing a partial player name for /tpa from the online name index.
+     */
+    @Benchmark
+    public List<String> tabCompleteTpa() {
+        int index = nextPlayer();
+        return tabCompleter.complete(players.get(index), "tpa", prefixes[index]);
+    }
+
+    /**
+     * Completing a requester's name for /tpaccept from the player's cached list, as the async
+     * tab-complete event does between changes to their requests.
+     */
+    @Benchmark
+    public List<String> tabCompleteTpacceptCached() {
+        int index = nextPlayer();
+        return tabCompleter.complete(players.get(index), "tpaccept", prefixes[index]);
+    }
+
+    /**
+     * Completing a requester's name for /tpaccept right after one of the player's requests
+     * changed, so the list is rebuilt from the store.
+     */
+    @Benchmark
+    public List<String> tabCompleteTpaccept() {
+        int index = nextPlayer();
+        tabCompleter.invalidate(playerIds[index]);
+        return tabCompleter.complete(players.get(index), "tpaccept", prefixes[index]);
+    }
+
+    /**
+     * Completing a target's name for /tpacancel right after one of the player's requests
+     * changed, so the list is rebuilt from the store.
+     */
+    @Benchmark
+    public List<String> tabCompleteTpacancel() {
+        int index = nextPlayer();
+        tabCompleter.invalidate(playerIds[index]);
+        return tabCompleter.complete(players.get(index), "tpacancel", prefixes[index]);
+    }
+
+    /**
+     * Advancing the expiry wheel by one tick. Expired requests are re-created so the store
+     * stays at the configured size.
+     */
+    @Benchmark
+    public int expiryTick() {
+        lifecycle.tick();
+        return lifecycle.currentTick();
+    }
+}
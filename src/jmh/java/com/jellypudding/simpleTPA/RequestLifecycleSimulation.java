@@ -0,0 +1,374 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless simulation of the request lifecycle under load, for catching the races and leaks a
+ * change to the request store, expiry wheel or cooldown tracking could bring in.
+ *
+ * <p>Stub players are spread over several simulated regions, each ticked on its own thread as
+ * Folia would, and randomly join, quit, reconnect, tab complete and run /tpa, /tpahere,
+ * /tpaccept, /tpdeny and /tpacancel. A reconnect joins the new login before the old one's quit
+ * is handled. Commands go through {@link RequestLifecycle}, the class {@link SimpleTPA}
+ * delegates to, in the same order as the plugin's handlers; only the messages, teleports and
+ * chunk preloading around them are left out. The tick clock only moves when the simulation
+ * advances it. After every tick, with all regions idle, and again once everything has been
+ * drained, it checks that:
+ * <ul>
+ *   <li>no request is resolved twice, which would mean a double teleport or message;</li>
+ *   <li>every pending request is in the expiry wheel and involves only online players;</li>
+ *   <li>every online player has a session for their current login, and nobody else has one;</li>
+ *   <li>no inbox is over the cap and the store stays under the server-wide ceiling;</li>
+ *   <li>after draining, every request was resolved and nothing is left in the store, the
+ *       wheel, the cooldowns or the rate limiters.</li>
+ * </ul>
+ *
+ * <p>It runs at two player counts and reports the cost of each tick's commands. If the cost
+ * per command at the larger count is more than {@link #MAX_SCALING} times that at the smaller
+ * one, the run fails, as something has stopped scaling. Run with {@code ./gradlew simulate};
+ * the process exits with status 1 if any check fails.
+ */
+public final class RequestLifecycleSimulation {
+
+    private static final int REGIONS = 4;
+    private static final int TICKS = 2_000;
+    private static final int SMALL_PLAYERS = 1_000;
+    private static final int LARGE_PLAYERS = 8_000;
+    private static final double MAX_SCALING = 3.0;
+
+    // Shorter than the defaults so requests, cooldowns and buckets run out many times per run.
+    private static final long TIMEOUT_TICKS = 200L;
+    private static final int COOLDOWN_TICKS = 40;
+    private static final int MAX_INCOMING_PER_TARGET = 20;
+    private static final int MAX_PENDING_TOTAL = 10_000;
+
+    // Chance per tick that an online player runs a command and that an offline one joins.
+    private static final double COMMAND_CHANCE = 0.05;
+    private static final double JOIN_CHANCE = 0.01;
+
+    private final List<Player> players;
+
+    // Each player's current login, or null while they are offline. Only touched by the player's own region.
+    private final Player[] connections;
+    private final Random[] regionRandoms = new Random[REGIONS];
+
+    private static final PluginSettings.Timeout TIMEOUT = new PluginSettings.Timeout(TIMEOUT_TICKS, "10 seconds");
+
+    private final RequestLifecycle lifecycle = new RequestLifecycle(new RequestLifecycle.Listener() {
+        @Override
+        public void resolved(TeleportRequest request) {
+            countResolution(request);
+        }
+    });
+    private final TeleportRequestStore store = lifecycle.getStore();
+    private final RequestExpiryWheel expiryWheel = lifecycle.getExpiryWheel();
+    private final CooldownTracker cooldowns = lifecycle.getCooldowns();
+    private final TokenBucketLimiter senderLimiter = lifecycle.getSenderLimiter();
+    private final TokenBucketLimiter targetLimiter = lifecycle.getTargetLimiter();
+    private final PlayerSessions sessions = lifecycle.getSessions();
+    private final RequestTabCompleter tabCompleter = lifecycle.getTabCompleter();
+
+    // Every request created, and how many times each has been resolved.
+    private final Set<TeleportRequest> created = ConcurrentHashMap.newKeySet();
+    private final Map<TeleportRequest, AtomicInteger> resolutions = new ConcurrentHashMap<>();
+
+    private final Queue<String> failures = new ConcurrentLinkedQueue<>();
+    private final LongAdder commands = new LongAdder();
+    private final LatencyHistogram tickCost = new LatencyHistogram();
+
+    private RequestLifecycleSimulation(int playerCount, long seed) {
+        players = StubPlayers.create(playerCount, seed);
+        connections = new Player[playerCount];
+        for (int i = 0; i < REGIONS; i++) {
+            regionRandoms[i] = new Random(seed + i);
+        }
+        senderLimiter.configure(5, 100);
+        targetLimiter.configure(10, 20);
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
+        ExecutorService regions = Executors.newFixedThreadPool(REGIONS);
+        try {
+            // Let the JIT settle before anything is timed.
+            new RequestLifecycleSimulation(SMALL_PLAYERS, 1L).run(regions);
+
+            RequestLifecycleSimulation small = new RequestLifecycleSimulation(SMALL_PLAYERS, 2L);
+            RequestLifecycleSimulation large = new RequestLifecycleSimulation(LARGE_PLAYERS, 3L);
+            double smallCost = small.run(regions);
+            double largeCost = large.run(regions);
+
+            List<String> failures = new ArrayList<>(small.failures);
+            failures.addAll(large.failures);
+            double scaling = largeCost / smallCost;
+            System.out.printf("Cost per command went from %.0f ns to %.0f ns (%.2fx) for %dx the players.%n",
+                smallCost, largeCost, scaling, LARGE_PLAYERS / SMALL_PLAYERS);
+            if (scaling > MAX_SCALING) {
+                failures.add(String.format("cost per command grew %.2fx, more than the allowed %.1fx", scaling, MAX_SCALING));
+            }
+
+            if (!failures.isEmpty()) {
+                failures.stream().limit(20).forEach(failure -> System.out.println("FAILED: " + failure));
+                System.out.println(failures.size() + " check(s) failed.");
+                System.exit(1);
+            }
+            System.out.println("All checks passed.");
+        } finally {
+            regions.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the simulation, drains it and checks the final state.
+     *
+     * @return the mean cost per command in nanoseconds
+     */
+    private double run(ExecutorService regions) throws InterruptedException, ExecutionException {
+        List<Callable<Void>> regionTicks = new ArrayList<>(REGIONS);
+        for (int i = 0; i < REGIONS; i++) {
+            int region = i;
+            regionTicks.add(() -> {
+                tickRegion(region);
+                return null;
+            });
+        }
+
+        long totalNanos = 0L;
+        for (int tick = 0; tick < TICKS; tick++) {
+            long start = System.nanoTime();
+            lifecycle.tick();
+            for (Future<Void> future : regions.invokeAll(regionTicks)) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+            tickCost.record(elapsed);
+            totalNanos += elapsed;
+
+            if (tick % 20 == 0) {
+                lifecycle.sweep(lifecycle.currentTick());
+            }
+            checkPending("tick " + tick);
+        }
+
+        drain();
+        report();
+        return (double) totalNanos / Math.max(1L, commands.sum());
+    }
+
+    private void tickRegion(int region) {
+        Random random = regionRandoms[region];
+        for (int i = region; i < players.size(); i += REGIONS) {
+            Player player = connections[i];
+            if (player == null) {
+                if (random.nextDouble() < JOIN_CHANCE) {
+                    connections[i] = players.get(i);
+                    lifecycle.join(connections[i]);
+                }
+                continue;
+            }
+            if (random.nextDouble() >= COMMAND_CHANCE) {
+                continue;
+            }
+
+            commands.increment();
+            int roll = random.nextInt(100);
+            if (roll < 35) {
+                tpa(player, randomPlayer(random), false);
+            } else if (roll < 40) {
+                tpa(player, randomPlayer(random), true);
+            } else if (roll < 60) {
+                tpaccept(player, random);
+            } else if (roll < 70) {
+                tpdeny(player, random);
+            } else if (roll < 80) {
+                tpacancel(player, random);
+            } else if (roll < 95) {
+                tabCompleter.complete(player, random.nextBoolean() ? "tpaccept" : "tpacancel", "");
+            } else if (roll < 98) {
+                lifecycle.leave(player);
+                connections[i] = null;
+            } else {
+                reconnect(i);
+            }
+        }
+    }
+
+    private Player randomPlayer(Random random) {
+        return players.get(random.nextInt(players.size()));
+    }
+
+    // Logs the player in again and only then handles the old login's quit, which must leave the new session alone.
+    private void reconnect(int index) {
+        Player previous = connections[index];
+        connections[index] = StubPlayers.create(previous.getUniqueId(), previous.getName());
+        lifecycle.join(connections[index]);
+        lifecycle.leave(previous);
+    }
+
+    // Mirrors SimpleTPA.sendRequest, minus messages and chunk preloading.
+    private void tpa(Player player, Player target, boolean here) {
+        UUID uuid = player.getUniqueId();
+        UUID targetUUID = target.getUniqueId();
+        int now = lifecycle.currentTick();
+        if (cooldowns.remaining(uuid, now) > 0 || targetUUID.equals(uuid) || sessions.get(targetUUID) == null) {
+            return;
+        }
+        if (lifecycle.admit(uuid, targetUUID, MAX_PENDING_TOTAL, now) != null) {
+            return;
+        }
+
+        TeleportRequest request = lifecycle.create(uuid, targetUUID, here);
+        if (request == null) {
+            return;
+        }
+        created.add(request);
+        if (request.isResolved()) {
+            return;
+        }
+        lifecycle.start(request, COOLDOWN_TICKS, TIMEOUT, now);
+        lifecycle.enforceInboxCap(targetUUID, MAX_INCOMING_PER_TARGET);
+    }
+
+    private void tpaccept(Player player, Random random) {
+        List<TeleportRequest> incoming = store.getIncoming(player.getUniqueId());
+        if (incoming.isEmpty()) {
+            return;
+        }
+        if (random.nextInt(10) == 0) {
+            incoming.forEach(lifecycle::accept);
+            return;
+        }
+        lifecycle.accept(incoming.get(random.nextInt(incoming.size())));
+    }
+
+    private void tpdeny(Player player, Random random) {
+        List<TeleportRequest> incoming = store.getIncoming(player.getUniqueId());
+        if (incoming.isEmpty()) {
+            return;
+        }
+        if (random.nextInt(10) == 0) {
+            incoming.forEach(lifecycle::deny);
+            return;
+        }
+        lifecycle.deny(incoming.get(random.nextInt(incoming.size())).getRequester(), player.getUniqueId());
+    }
+
+    private void tpacancel(Player player, Random random) {
+        List<TeleportRequest> outgoing = store.getOutgoing(player.getUniqueId());
+        if (outgoing.isEmpty()) {
+            return;
+        }
+        if (random.nextBoolean()) {
+            outgoing.forEach(lifecycle::cancel);
+            return;
+        }
+        lifecycle.cancel(player.getUniqueId(), outgoing.get(random.nextInt(outgoing.size())).getTarget());
+    }
+
+    // Called by the lifecycle each time it resolves a request.
+    private void countResolution(TeleportRequest request) {
+        int times = resolutions.computeIfAbsent(request, key -> new AtomicInteger()).incrementAndGet();
+        if (times > 1) {
+            failures.add("request " + describe(request) + " was resolved " + times + " times");
+        }
+    }
+
+    // Checks the sessions and pending requests while every region is idle.
+    private void checkPending(String when) {
+        for (int i = 0; i < connections.length; i++) {
+            Player session = sessions.getPlayer(players.get(i).getUniqueId());
+            if (session != connections[i]) {
+                failures.add(when + ": " + players.get(i).getName() + (connections[i] == null
+                    ? " is offline but still has a session" : " is online but their session is missing or from an old login"));
+            }
+        }
+
+        List<TeleportRequest> pending = store.getAll();
+        if (pending.size() != store.size()) {
+            failures.add(when + ": the store counts " + store.size() + " requests but holds " + pending.size());
+        }
+        if (expiryWheel.size() != pending.size()) {
+            failures.add(when + ": the expiry wheel holds " + expiryWheel.size() + " requests for " + pending.size() + " pending");
+        }
+        if (pending.size() > MAX_PENDING_TOTAL + REGIONS) {
+            failures.add(when + ": " + pending.size() + " requests are pending, over the ceiling of " + MAX_PENDING_TOTAL);
+        }
+
+        for (TeleportRequest request : pending) {
+            if (request.isResolved() || request.getWheelSlot() < 0) {
+                failures.add(when + ": pending request " + describe(request) + " is resolved or not scheduled");
+            }
+            if (sessions.get(request.getRequester()) == null || sessions.get(request.getTarget()) == null) {
+                failures.add(when + ": pending request " + describe(request) + " involves a player who left");
+            }
+            if (store.countIncoming(request.getTarget()) > MAX_INCOMING_PER_TARGET) {
+                failures.add(when + ": " + request.getTarget() + " has more than " + MAX_INCOMING_PER_TARGET + " incoming requests");
+            }
+        }
+    }
+
+    // Lets everything run out and everyone leave, then checks nothing was left behind.
+    private void drain() {
+        for (long tick = 0; tick <= TIMEOUT_TICKS; tick++) {
+            lifecycle.tick();
+        }
+        for (int i = 0; i < connections.length; i++) {
+            if (connections[i] != null) {
+                lifecycle.leave(connections[i]);
+                connections[i] = null;
+            }
+        }
+        lifecycle.sweep(lifecycle.currentTick() + COOLDOWN_TICKS + 1_000);
+
+        String when = "after draining";
+        if (store.size() != 0 || !store.getAll().isEmpty()) {
+            failures.add(when + ": " + store.size() + " requests are still in the store");
+        }
+        if (expiryWheel.size() != 0) {
+            failures.add(when + ": " + expiryWheel.size() + " requests are still in the expiry wheel");
+        }
+        if (cooldowns.size() != 0 || senderLimiter.size() != 0 || targetLimiter.size() != 0) {
+            failures.add(when + ": " + cooldowns.size() + " cooldowns and " + (senderLimiter.size() + targetLimiter.size())
+                + " rate limit buckets are left");
+        }
+        for (TeleportRequest request : created) {
+            if (!resolutions.containsKey(request)) {
+                failures.add(when + ": request " + describe(request) + " was never resolved");
+            }
+        }
+        for (Player player : players) {
+            // Only "all" should be offered once nothing is pending.
+            if (tabCompleter.complete(player, "tpaccept", "").size() > 1) {
+                failures.add(when + ": tab completion still lists requests for " + player.getName());
+                break;
+            }
+        }
+    }
+
+    private void report() {
+        LatencyHistogram.Snapshot snapshot = tickCost.snapshot();
+        System.out.printf("%d players: %d commands and %d requests over %d ticks; tick cost p50 %s, p99 %s, max %s%n",
+            players.size(), commands.sum(), created.size(), TICKS, PluginMetrics.formatNanos(snapshot.valueAt(0.5)),
+            PluginMetrics.formatNanos(snapshot.valueAt(0.99)), PluginMetrics.formatNanos(snapshot.max()));
+    }
+
+    private static String describe(TeleportRequest request) {
+        return request.getRequester() + " -> " + request.getTarget();
+    }
+}
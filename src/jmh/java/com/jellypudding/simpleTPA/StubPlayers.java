@@ -0,0 +1,72 @@
+package com.jellypudding.simpleTPA;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Creates lightweight {@link Player} stand-ins for benchmarks. Only the methods the plugin's hot
+ * paths touch are answered; everything else returns a default value.
+ */
+final class StubPlayers {
+
+    private StubPlayers() {
+    }
+
+    static List<Player> create(int count, long seed) {
+        Random random = new Random(seed);
+        List<Player> players = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            players.add(create(new UUID(random.nextLong(), random.nextLong()), randomName(random, i)));
+        }
+        return players;
+    }
+
+    static Player create(UUID uuid, String name) {
+        Component displayName = Component.text(name);
+        return (Player) Proxy.newProxyInstance(Player.class.getClassLoader(), new Class<?>[]{Player.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getUniqueId":
+                    return uuid;
+                case "getName":
+                    return name;
+                case "displayName":
+                    return displayName;
+                case "isOnline":
+                    return true;
+                case "hashCode":
+                    return uuid.hashCode();
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "StubPlayer{" + name + "}";
+                default:
+                    Class<?> returnType = method.getReturnType();
+                    if (returnType == boolean.class) {
+                        return false;
+                    }
+                    if (returnType.isPrimitive() && returnType != void.class) {
+                        return 0;
+                    }
+                    return null;
+            }
+        });
+    }
+
+    // Minecraft-like names: 3-16 characters from letters, digits and underscores.
+    private static String randomName(Random random, int index) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789_";
+        StringBuilder name = new StringBuilder();
+        int length = 3 + random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            name.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        // Suffix with the index so names stay unique.
+        return name.append(index).toString();
+    }
+}
@@ -0,0 +1,58 @@
+package com.jellypudding.simpleTPA;
+
+import com.destroystokyo.paper.event.server.AsyncTabCompleteEvent;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+
+import java.util.List;
+
+/**
+ * Answers tab completion for the plugin's commands off the main thread when the result is
+ * already cached. Anything else is left for the normal synchronous completion.
+ */
+final class AsyncTabCompleteListener implements Listener {
+
+    private static final String NAMESPACE = "simpletpa:";
+
+    private final RequestTabCompleter tabCompleter;
+
+    AsyncTabCompleteListener(RequestTabCompleter tabCompleter) {
+        this.tabCompleter = tabCompleter;
+    }
+
+    @EventHandler
+    public void onAsyncTabComplete(AsyncTabCompleteEvent event) {
+        if (event.isHandled() || !event.isCommand() || !(event.getSender() instanceof Player player)) {
+            return;
+        }
+
+        // Only the first argument is completed: "/tpa Na" has exactly one space.
+        String buffer = event.getBuffer();
+        int space = buffer.indexOf(' ');
+        if (space < 0 || buffer.indexOf(' ', space + 1) >= 0) {
+            return;
+        }
+
+        int labelStart = buffer.startsWith("/") ? 1 : 0;
+        String label = buffer.substring(labelStart, space).toLowerCase();
+        if (label.startsWith(NAMESPACE)) {
+            label = label.substring(NAMESPACE.length());
+        }
+
+        if (!isPluginCommand(label) || !player.hasPermission("simpletpa." + label)) {
+            return;
+        }
+
+        List<String> completions = tabCompleter.completeCached(player, label, buffer.substring(space + 1));
+        if (completions != null) {
+            event.setCompletions(completions);
+            event.setHandled(true);
+        }
+    }
+
+    private static boolean isPluginCommand(String label) {
+        return label.equals("tpa") || label.equals("tpaccept") || label.equals("tpdeny") || label.equals("tpahere")
+            || label.equals("tpacancel") || label.equals("tpalog");
+    }
+}
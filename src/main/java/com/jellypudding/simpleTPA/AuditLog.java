@@ -0,0 +1,421 @@
+package com.jellypudding.simpleTPA;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moderation log of teleports: who was teleported to whom, where to, and how it ended.
+ *
+ * <p>Recording a teleport only offers a small record to a bounded lock-free queue. A single
+ * background thread formats and writes whatever has queued up in one batch, once a second or
+ * sooner when the queue is filling up. If the writer falls so far behind that the queue is
+ * full, new records are dropped and counted rather than holding up the region thread.
+ *
+ * <p>Files are named {@code audit-<date>-<index>.log}, one line per teleport, and roll over at
+ * midnight or when they reach the size limit. Finished files can be gzipped, and files older
+ * than the retention period are deleted whenever a new one is started.
+ */
+final class AuditLog {
+
+    /**
+     * How a teleport ended.
+     */
+    enum Outcome {
+        TELEPORTED,
+        FAILED,
+        NO_SAFE_SPOT,
+        BLOCKED
+    }
+
+    /**
+     * One teleport: the traveller was sent, or was meant to be sent, to the player at the given
+     * position.
+     */
+    record Entry(long time, Outcome outcome, UUID traveller, String travellerName, UUID player, String playerName,
+                 String world, double x, double y, double z) {
+
+        // e.g. "2026-10-18T09:15:02.114Z TELEPORTED <uuid> Alex <uuid> Steve 102.5 64.0 -33.5 world"
+        void appendTo(StringBuilder line) {
+            line.append(Instant.ofEpochMilli(time)).append(' ').append(outcome.name())
+                .append(' ').append(traveller).append(' ').append(travellerName)
+                .append(' ').append(player).append(' ').append(playerName)
+                .append(' ').append(String.format(Locale.ROOT, "%.1f %.1f %.1f", x, y, z))
+                .append(' ').append(world).append('\n');
+        }
+
+        // Null for a line that isn't a complete record, such as one still being written.
+        static Entry parse(String line) {
+            String[] fields = line.split(" ", 10);
+            if (fields.length < 10) {
+                return null;
+            }
+            try {
+                return new Entry(Instant.parse(fields[0]).toEpochMilli(), Outcome.valueOf(fields[1]),
+                    UUID.fromString(fields[2]), fields[3], UUID.fromString(fields[4]), fields[5], fields[9],
+                    Double.parseDouble(fields[6]), Double.parseDouble(fields[7]), Double.parseDouble(fields[8]));
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                return null;
+            }
+        }
+
+        boolean involves(UUID uuid, String name) {
+            return uuid != null ? uuid.equals(traveller) || uuid.equals(player)
+                : name.equalsIgnoreCase(travellerName) || name.equalsIgnoreCase(playerName);
+        }
+    }
+
+    private static final int QUEUE_CAPACITY = 8192;
+
+    // The writer is woken early once this many records are waiting, well before the queue is full.
+    private static final int WAKE_THRESHOLD = QUEUE_CAPACITY / 4;
+
+    private static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    // Lookups stop after this many files, so an unknown name doesn't read years of logs.
+    private static final int MAX_FILES_SEARCHED = 60;
+
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    private static final Pattern FILE_NAME = Pattern.compile("audit-(\\d{4}-\\d{2}-\\d{2})-(\\d+)\\.log(\\.gz)?");
+
+    private final Path directory;
+    private final long maxFileBytes;
+    private final boolean compress;
+    private final int retentionDays;
+    private final Logger logger;
+
+    // Bounded by the counter rather than the queue, so offering never takes a lock.
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean stopping;
+    private Thread writer;
+
+    // Only touched by the writer thread once it has started.
+    private LocalDate currentDate;
+    private int currentIndex;
+    private Path currentFile;
+    private long currentBytes;
+    private BufferedWriter out;
+
+    /**
+     * @param maxFileBytes size at which a new file is started on the same day
+     * @param compress whether to gzip files once they are finished
+     * @param retentionDays how many days of files to keep; 0 keeps them forever
+     */
+    AuditLog(Path directory, long maxFileBytes, boolean compress, int retentionDays, Logger logger) {
+        this.directory = directory;
+        this.maxFileBytes = Math.max(1024L, maxFileBytes);
+        this.compress = compress;
+        this.retentionDays = Math.max(0, retentionDays);
+        this.logger = logger;
+    }
+
+    /**
+     * Opens today's file, compresses any files left unfinished by an earlier run and starts the
+     * writer thread.
+     */
+    void open() throws IOException {
+        Files.createDirectories(directory);
+
+        LocalDate today = LocalDate.now();
+        List<LogFile> files = listFiles();
+        int index = 0;
+        for (LogFile file : files) {
+            if (file.date().equals(today)) {
+                // Carry on with the newest file if it is still open for writing.
+                index = file.compressed() ? file.index() + 1 : file.index();
+                break;
+            }
+        }
+        openFile(today, index);
+
+        for (LogFile file : files) {
+            if (compress && !file.compressed() && !file.path().equals(currentFile)) {
+                compress(file.path());
+            }
+        }
+        deleteExpired(today);
+
+        writer = new Thread(this::writeLoop, "SimpleTPA Audit Log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a teleport for writing. Safe to call from any thread, and never blocks.
+     */
+    void record(Outcome outcome, UUID traveller, String travellerName, UUID player, String playerName, String world,
+                double x, double y, double z) {
+        int size = queued.incrementAndGet();
+        if (size > QUEUE_CAPACITY) {
+            queued.decrementAndGet();
+            dropped.increment();
+            return;
+        }
+        queue.offer(new Entry(System.currentTimeMillis(), outcome, traveller, travellerName, player, playerName, world, x, y, z));
+        if (size == WAKE_THRESHOLD) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Stops the writer once it has written everything still queued.
+     */
+    void close() {
+        if (writer == null) {
+            return;
+        }
+
+        stopping = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(5000L);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+    }
+
+    /**
+     * Returns up to {@code limit} of the most recent entries involving a player, newest first.
+     * Files are read newest first, a line at a time, and reading stops as soon as there are
+     * enough, so only the matches are held in memory. Can be called from any thread.
+     *
+     * @param uuid the player's UUID, or null to match on the name instead
+     */
+    List<Entry> search(UUID uuid, String name, int limit) throws IOException {
+        List<Entry> found = new ArrayList<>(limit);
+        List<LogFile> files = listFiles();
+        for (int i = 0; i < files.size() && i < MAX_FILES_SEARCHED && found.size() < limit; i++) {
+            // Lines are oldest first, so keep only the last few matches in each file.
+            ArrayDeque<Entry> newest = new ArrayDeque<>();
+            int wanted = limit - found.size();
+            try (BufferedReader reader = openReader(files.get(i))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Entry entry = Entry.parse(line);
+                    if (entry == null || !entry.involves(uuid, name)) {
+                        continue;
+                    }
+                    if (newest.size() == wanted) {
+                        newest.removeFirst();
+                    }
+                    newest.addLast(entry);
+                }
+            } catch (NoSuchFileException e) {
+                // Compressed or deleted by the writer since the directory was listed.
+                continue;
+            }
+            while (!newest.isEmpty()) {
+                found.add(newest.removeLast());
+            }
+        }
+        return found;
+    }
+
+    private void writeLoop() {
+        StringBuilder line = new StringBuilder(192);
+        while (true) {
+            // Read before draining, so everything queued before close() is written.
+            boolean stop = stopping;
+            drain(line);
+            if (stop) {
+                break;
+            }
+            LockSupport.parkNanos(this, FLUSH_INTERVAL_NANOS);
+        }
+
+        try {
+            closeFile();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not close the audit log", e);
+        }
+    }
+
+    private void drain(StringBuilder line) {
+        long droppedSinceLast = dropped.sumThenReset();
+        if (droppedSinceLast > 0) {
+            logger.warning("The audit log fell behind and dropped " + droppedSinceLast + " records");
+        }
+
+        Entry entry = poll();
+        if (entry == null) {
+            return;
+        }
+
+        try {
+            LocalDate today = LocalDate.now();
+            if (out == null || !today.equals(currentDate)) {
+                roll(today);
+            }
+            do {
+                line.setLength(0);
+                entry.appendTo(line);
+                if (currentBytes >= maxFileBytes) {
+                    roll(today);
+                }
+                out.append(line);
+                currentBytes += utf8Length(line);
+            } while ((entry = poll()) != null);
+            out.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not write to the audit log", e);
+            // Start a fresh file with the next batch.
+            try {
+                closeFile();
+            } catch (IOException ignored) {
+            }
+            while (poll() != null) {
+                // Dropped along with the batch that failed.
+            }
+        }
+    }
+
+    // Takes the next entry off the queue, so it no longer counts towards the queue's limit.
+    private Entry poll() {
+        Entry entry = queue.poll();
+        if (entry != null) {
+            queued.decrementAndGet();
+        }
+        return entry;
+    }
+
+    // The number of bytes the text takes up in UTF-8, without encoding it.
+    private static int utf8Length(CharSequence text) {
+        int bytes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes++;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length() && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    // Finishes the current file and starts the next one, for a new day or because it is full.
+    private void roll(LocalDate date) throws IOException {
+        Path finished = currentFile;
+        closeFile();
+        if (finished != null && compress) {
+            compress(finished);
+        }
+
+        boolean newDay = !date.equals(currentDate);
+        openFile(date, newDay ? 0 : currentIndex + 1);
+        if (newDay) {
+            deleteExpired(date);
+        }
+    }
+
+    private void openFile(LocalDate date, int index) throws IOException {
+        currentDate = date;
+        currentIndex = index;
+        currentFile = directory.resolve("audit-" + date + "-" + index + ".log");
+        currentBytes = Files.exists(currentFile) ? Files.size(currentFile) : 0L;
+        out = Files.newBufferedWriter(currentFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private void closeFile() throws IOException {
+        if (out != null) {
+            BufferedWriter closing = out;
+            out = null;
+            currentFile = null;
+            closing.close();
+        }
+    }
+
+    // Written to a temporary file first, so a crash never leaves a truncated .gz behind.
+    private void compress(Path file) throws IOException {
+        Path compressed = file.resolveSibling(file.getFileName() + ".gz");
+        Path temporary = file.resolveSibling(file.getFileName() + ".gz.tmp");
+        try (InputStream in = Files.newInputStream(file);
+             OutputStream gzip = new GZIPOutputStream(Files.newOutputStream(temporary), BUFFER_CHARS)) {
+            in.transferTo(gzip);
+        }
+        Files.move(temporary, compressed, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.delete(file);
+    }
+
+    private void deleteExpired(LocalDate today) throws IOException {
+        if (retentionDays == 0) {
+            return;
+        }
+
+        LocalDate oldest = today.minusDays(retentionDays);
+        for (LogFile file : listFiles()) {
+            if (file.date().isBefore(oldest)) {
+                Files.deleteIfExists(file.path());
+            }
+        }
+    }
+
+    private BufferedReader openReader(LogFile file) throws IOException {
+        InputStream in = Files.newInputStream(file.path());
+        if (file.compressed()) {
+            in = new GZIPInputStream(in, BUFFER_CHARS);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_CHARS);
+    }
+
+    // Every log file in the directory, newest first.
+    private List<LogFile> listFiles() throws IOException {
+        List<LogFile> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "audit-*")) {
+            for (Path path : stream) {
+                Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    files.add(new LogFile(path, LocalDate.parse(matcher.group(1)), Integer.parseInt(matcher.group(2)), matcher.group(3) != null));
+                }
+            }
+        }
+        files.sort(Comparator.comparing(LogFile::date).thenComparingInt(LogFile::index).reversed());
+        return files;
+    }
+
+    private record LogFile(Path path, LocalDate date, int index, boolean compressed) {
+    }
+}
@@ -0,0 +1,203 @@
+package com.jellypudding.simpleTPA;
+
+import java.util.UUID;
+
+/**
+ * Tracks per-player cooldown deadlines in an open-addressing table keyed by the two halves
+ * of the player's UUID. Deadlines are stored as int ticks, so checking and starting a
+ * cooldown allocates nothing. Expired entries are dropped when they are next looked up,
+ * when the table grows, or when {@link #sweep(int)} runs.
+ *
+ * <p>All methods are synchronized so cooldowns can be checked from any region thread.
+ */
+final class CooldownTracker {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    // A deadline of 0 marks an empty slot.
+    private static final int EMPTY = 0;
+
+    private long[] mostSignificant;
+    private long[] leastSignificant;
+    private int[] deadlines;
+    private int mask;
+    private int size;
+
+    CooldownTracker() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Returns how many ticks are left on the player's cooldown, or 0 if they are not on cooldown.
+     */
+    synchronized int remaining(UUID player, int now) {
+        long msb = player.getMostSignificantBits();
+        long lsb = player.getLeastSignificantBits();
+
+        for (int i = indexFor(msb, lsb); deadlines[i] != EMPTY; i = (i + 1) & mask) {
+            if (mostSignificant[i] == msb && leastSignificant[i] == lsb) {
+                int left = deadlines[i] - now;
+                if (left > 0) {
+                    return left;
+                }
+                removeAt(i);
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Puts the player on cooldown for the given number of ticks, replacing any existing cooldown.
+     */
+    synchronized void start(UUID player, int now, int durationTicks) {
+        if (durationTicks <= 0) {
+            return;
+        }
+
+        long msb = player.getMostSignificantBits();
+        long lsb = player.getLeastSignificantBits();
+        int deadline = now + durationTicks;
+        if (deadline == EMPTY) {
+            deadline = 1;
+        }
+
+        int i = indexFor(msb, lsb);
+        for (; deadlines[i] != EMPTY; i = (i + 1) & mask) {
+            if (mostSignificant[i] == msb && leastSignificant[i] == lsb) {
+                deadlines[i] = deadline;
+                return;
+            }
+        }
+
+        mostSignificant[i] = msb;
+        leastSignificant[i] = lsb;
+        deadlines[i] = deadline;
+        size++;
+
+        // Keep the load factor at or below one half.
+        if (size * 2 > deadlines.length) {
+            rebuild(now, deadlines.length * 2);
+        }
+    }
+
+    /**
+     * Removes the player's cooldown, if any.
+     */
+    synchronized void clear(UUID player) {
+        long msb = player.getMostSignificantBits();
+        long lsb = player.getLeastSignificantBits();
+
+        for (int i = indexFor(msb, lsb); deadlines[i] != EMPTY; i = (i + 1) & mask) {
+            if (mostSignificant[i] == msb && leastSignificant[i] == lsb) {
+                removeAt(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Drops every expired cooldown and shrinks the table if most of it is now empty.
+     */
+    synchronized void sweep(int now) {
+        int live = 0;
+        for (int deadline : deadlines) {
+            if (deadline != EMPTY && deadline - now > 0) {
+                live++;
+            }
+        }
+
+        int capacity = INITIAL_CAPACITY;
+        while (live * 2 > capacity) {
+            capacity <<= 1;
+        }
+        rebuild(now, capacity);
+    }
+
+    /**
+     * Passes every player still on cooldown to the visitor with their remaining ticks.
+     */
+    synchronized void forEachActive(int now, ActiveCooldownVisitor visitor) {
+        for (int i = 0; i < deadlines.length; i++) {
+            int left = deadlines[i] - now;
+            if (deadlines[i] != EMPTY && left > 0) {
+                visitor.visit(new UUID(mostSignificant[i], leastSignificant[i]), left);
+            }
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void clearAll() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private int indexFor(long msb, long lsb) {
+        long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+
+    private void allocate(int capacity) {
+        mostSignificant = new long[capacity];
+        leastSignificant = new long[capacity];
+        deadlines = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    private void rebuild(int now, int capacity) {
+        long[] oldMost = mostSignificant;
+        long[] oldLeast = leastSignificant;
+        int[] oldDeadlines = deadlines;
+
+        allocate(capacity);
+        for (int j = 0; j < oldDeadlines.length; j++) {
+            int deadline = oldDeadlines[j];
+            if (deadline == EMPTY || deadline - now <= 0) {
+                continue;
+            }
+
+            int i = indexFor(oldMost[j], oldLeast[j]);
+            while (deadlines[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            mostSignificant[i] = oldMost[j];
+            leastSignificant[i] = oldLeast[j];
+            deadlines[i] = deadline;
+            size++;
+        }
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones.
+    private void removeAt(int hole) {
+        int i = hole;
+        int j = hole;
+        while (true) {
+            j = (j + 1) & mask;
+            if (deadlines[j] == EMPTY) {
+                break;
+            }
+
+            int home = indexFor(mostSignificant[j], leastSignificant[j]);
+            boolean homeBetween = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (homeBetween) {
+                continue;
+            }
+
+            mostSignificant[i] = mostSignificant[j];
+            leastSignificant[i] = leastSignificant[j];
+            deadlines[i] = deadlines[j];
+            i = j;
+        }
+
+        deadlines[i] = EMPTY;
+        size--;
+    }
+
+    @FunctionalInterface
+    interface ActiveCooldownVisitor {
+        void visit(UUID player, int remainingTicks);
+    }
+}
@@ -0,0 +1,186 @@
+package com.jellypudding.simpleTPA;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Links this server to the others behind the proxy. Keeps a directory of the players on
+ * other servers, queues outgoing events and sends everything queued during a tick as one
+ * batch of frames, and remembers which players are on their way here to be teleported.
+ *
+ * <p>Events received from other servers are handed to the handler on whichever thread the
+ * transport delivers them on.
+ */
+final class CrossServerNetwork {
+
+    // The proxy's Forward subchannel prefixes the payload with a short length.
+    static final int MAX_FRAME_BYTES = 32000;
+
+    private final String serverName;
+    private final NetworkTransport transport;
+    private final BiConsumer<String, NetworkMessage> handler;
+    private final Logger logger;
+
+    private final ConcurrentLinkedQueue<NetworkMessage> outbox = new ConcurrentLinkedQueue<>();
+
+    // Players on other servers, by UUID and by lowercase name.
+    private final ConcurrentHashMap<UUID, RemotePlayer> players = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, RemotePlayer> playersByName = new ConcurrentHashMap<>();
+
+    // Requesters who were sent here after their request was accepted, by requester.
+    private final ConcurrentHashMap<UUID, Arrival> arrivals = new ConcurrentHashMap<>();
+
+    CrossServerNetwork(String serverName, NetworkTransport transport, BiConsumer<String, NetworkMessage> handler, Logger logger) {
+        this.serverName = serverName;
+        this.transport = transport;
+        this.handler = handler;
+        this.logger = logger;
+    }
+
+    String getServerName() {
+        return serverName;
+    }
+
+    NetworkTransport getTransport() {
+        return transport;
+    }
+
+    void open() {
+        transport.open(this::receive);
+    }
+
+    void close() {
+        flush();
+        transport.close();
+        players.clear();
+        playersByName.clear();
+        arrivals.clear();
+    }
+
+    /**
+     * Queues an event for the next flush.
+     */
+    void send(NetworkMessage message) {
+        outbox.add(message);
+    }
+
+    /**
+     * Sends everything queued since the last flush. Called once per tick.
+     */
+    void flush() {
+        if (outbox.isEmpty()) {
+            return;
+        }
+
+        List<NetworkMessage> batch = new ArrayList<>();
+        NetworkMessage message;
+        while ((message = outbox.poll()) != null) {
+            batch.add(message);
+        }
+        for (byte[] frame : NetworkFrames.encode(serverName, batch, MAX_FRAME_BYTES)) {
+            transport.broadcast(frame);
+        }
+    }
+
+    private void receive(byte[] bytes) {
+        NetworkFrames.Frame frame;
+        try {
+            frame = NetworkFrames.decode(bytes);
+        } catch (IOException e) {
+            logger.warning("Ignoring a malformed network frame: " + e.getMessage());
+            return;
+        }
+
+        if (frame.origin().equals(serverName)) {
+            return;
+        }
+        for (NetworkMessage message : frame.messages()) {
+            handler.accept(frame.origin(), message);
+        }
+    }
+
+    RemotePlayer getPlayer(UUID uuid) {
+        return players.get(uuid);
+    }
+
+    RemotePlayer findPlayer(String name) {
+        return playersByName.get(name.toLowerCase());
+    }
+
+    boolean isRemote(UUID uuid) {
+        return players.containsKey(uuid);
+    }
+
+    void addPlayer(UUID uuid, String name, String server) {
+        RemotePlayer player = new RemotePlayer(uuid, name, server);
+        RemotePlayer previous = players.put(uuid, player);
+        if (previous != null && !previous.name().equalsIgnoreCase(name)) {
+            playersByName.remove(previous.name().toLowerCase(), previous);
+        }
+        playersByName.put(name.toLowerCase(), player);
+    }
+
+    /**
+     * Removes a player, but only if they are still listed on the given server: when a player
+     * switches servers the new server's join can arrive before the old server's leave.
+     */
+    RemotePlayer removePlayer(UUID uuid, String server) {
+        RemotePlayer player = players.get(uuid);
+        if (player == null || !player.server().equals(server) || !players.remove(uuid, player)) {
+            return null;
+        }
+        playersByName.remove(player.name().toLowerCase(), player);
+        return player;
+    }
+
+    /**
+     * Removes every player listed on the given server, e.g. because it has restarted.
+     */
+    List<RemotePlayer> forgetServer(String server) {
+        List<RemotePlayer> removed = new ArrayList<>();
+        for (RemotePlayer player : players.values()) {
+            if (player.server().equals(server) && removePlayer(player.uuid(), server) != null) {
+                removed.add(player);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes every player on other servers, e.g. because we may have missed their leaves.
+     */
+    List<RemotePlayer> forgetAll() {
+        List<RemotePlayer> removed = new ArrayList<>(players.values());
+        players.clear();
+        playersByName.clear();
+        return removed;
+    }
+
+    void expectArrival(UUID requester, UUID target, long expiresAt) {
+        arrivals.put(requester, new Arrival(target, expiresAt));
+    }
+
+    /**
+     * Returns who the player should be teleported to on joining, or null if nobody.
+     */
+    UUID takeArrival(UUID requester, long now) {
+        Arrival arrival = arrivals.remove(requester);
+        return arrival != null && arrival.expiresAt() > now ? arrival.target() : null;
+    }
+
+    void sweepArrivals(long now) {
+        arrivals.values().removeIf(arrival -> arrival.expiresAt() <= now);
+    }
+
+    record RemotePlayer(UUID uuid, String name, String server) {
+    }
+
+    private record Arrival(UUID target, long expiresAt) {
+    }
+}
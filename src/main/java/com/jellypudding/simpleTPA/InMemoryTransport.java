@@ -0,0 +1,63 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Transport that delivers frames directly to the other transports on the same {@link Hub},
+ * so several servers' worth of networking can run in one process without a proxy.
+ */
+final class InMemoryTransport implements NetworkTransport {
+
+    private final Hub hub;
+    private volatile Consumer<byte[]> receiver;
+
+    InMemoryTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void open(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        hub.nodes.add(this);
+    }
+
+    @Override
+    public void broadcast(byte[] frame) {
+        for (InMemoryTransport node : hub.nodes) {
+            if (node != this) {
+                node.receiver.accept(frame.clone());
+            }
+        }
+    }
+
+    @Override
+    public void connect(Player player, String server) {
+        hub.onConnect.accept(player.getUniqueId(), server);
+    }
+
+    @Override
+    public void close() {
+        hub.nodes.remove(this);
+    }
+
+    /**
+     * The stand-in for the proxy: every transport on the hub receives every other one's frames.
+     */
+    static final class Hub {
+
+        private final CopyOnWriteArrayList<InMemoryTransport> nodes = new CopyOnWriteArrayList<>();
+        private final BiConsumer<UUID, String> onConnect;
+
+        /**
+         * @param onConnect called with the player and server name when a player is sent to another server
+         */
+        Hub(BiConsumer<UUID, String> onConnect) {
+            this.onConnect = onConnect;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.jellypudding.simpleTPA;
+
+/**
+ * Every player-facing message, with its path under {@code messages} in config.yml, its default
+ * MiniMessage text and the names of the placeholders it accepts, in the order they are passed.
+ */
+enum Message {
+
+    ONLY_PLAYERS("only-players", "<red>Only players can use teleportation commands."),
+    PLAYER_NOT_FOUND("player-not-found", "<red>Player not found or is offline."),
+    NO_PENDING_REQUESTS("no-pending-requests", "<red>You don't have any pending teleport requests."),
+    PENDING_REQUEST_ENTRY("pending-request-entry", "<gold> - </gold><player>", "player"),
+
+    TPA_USAGE("tpa-usage", "<red>Usage: /tpa <player>"),
+    COOLDOWN("cooldown", "<red>Please wait <seconds> seconds before sending another request.", "seconds"),
+    CANNOT_TELEPORT_TO_SELF("cannot-teleport-to-self", "<red>You cannot teleport to yourself."),
+    DIFFERENT_DIMENSION("different-dimension", "<red>You cannot teleport to a player in a different dimension."),
+    ALREADY_PENDING("already-pending", "<red>You already have a pending request to this player."),
+    RATE_LIMITED_SENDER("rate-limited-sender", "<red>You're sending teleport requests too quickly. Please wait a moment."),
+    RATE_LIMITED_TARGET("rate-limited-target", "<player><red> is receiving too many teleport requests right now. Try again later.", "player"),
+    SERVER_REQUEST_LIMIT("server-request-limit", "<red>There are too many pending teleport requests right now. Try again later."),
+    REQUEST_EVICTED("request-evicted", "<red>Your teleport request to </red><player><red> was dropped because they have too many pending requests.", "player"),
+    REQUEST_SENT("request-sent", "<green>Teleport request sent to </green><player><green>.", "player"),
+    REQUEST_EXPIRES_IN("request-expires-in", "<yellow>This request will expire in <timeout>.", "timeout"),
+    REQUEST_RECEIVED("request-received", "<player><green> has requested to teleport to you.", "player"),
+    REQUEST_ACCEPT_HINT("request-accept-hint", "<yellow>Type /tpaccept </yellow><player><yellow> to accept. This request will expire in <timeout>.", "player", "timeout"),
+    TPAHERE_USAGE("tpahere-usage", "<red>Usage: /tpahere <player>"),
+    HERE_REQUEST_SENT("here-request-sent", "<green>Asked </green><player><green> to teleport to you.", "player"),
+    HERE_REQUEST_RECEIVED("here-request-received", "<player><green> has asked you to teleport to them.", "player"),
+    HERE_ALL_SENT("here-all-sent", "<green>Asked <count> players to teleport to you.", "count"),
+    REQUEST_EXPIRED_SENT("request-expired-sent", "<red>Your teleport request to </red><player><red> has expired.", "player"),
+    REQUEST_EXPIRED_RECEIVED("request-expired-received", "<red>Teleport request from </red><player><red> has expired.", "player"),
+
+    TPACCEPT_USAGE("tpaccept-usage", "<red>Usage: /tpaccept <player> or /tpaccept all"),
+    PENDING_REQUESTS_FROM("pending-requests-from", "<yellow>Pending requests from:"),
+    NO_REQUEST_FROM("no-request-from", "<red>You don't have a pending request from </red><player><red>.", "player"),
+    ACCEPT_DIFFERENT_DIMENSION("accept-different-dimension", "<red>You cannot accept a teleport request from a player in a different dimension."),
+    REQUESTER_DEAD("requester-dead", "<red>Cannot teleport </red><player><red> - they are currently dead.", "player"),
+    REQUESTER_DEAD_NOTICE("requester-dead-notice", "<player><red> tried to accept your teleport request but you were dead. Request cancelled.", "player"),
+    TELEPORTED("teleported", "<green>Teleported to </green><player><green>.", "player"),
+    TELEPORTED_TO_YOU("teleported-to-you", "<player><green> has been teleported to you.", "player"),
+    TELEPORT_FAILED("teleport-failed", "<red>Teleport to </red><player><red> failed.", "player"),
+    TELEPORT_FAILED_TO_YOU("teleport-failed-to-you", "<red>Could not teleport </red><player><red> to you.", "player"),
+    NO_SAFE_DESTINATION("no-safe-destination", "<red>Teleport cancelled because there's nowhere safe to stand near </red><player><red>.", "player"),
+    NO_SAFE_DESTINATION_NOTICE("no-safe-destination-notice", "<player><red> couldn't be teleported to you because there's nowhere safe to stand nearby.", "player"),
+    WARMUP_STARTED("warmup-started", "<yellow>Teleporting in <seconds> seconds. Don't move or take damage.", "seconds"),
+    WARMUP_STARTED_TARGET("warmup-started-target", "<player><yellow> will be teleported to you in <seconds> seconds.", "player", "seconds"),
+    WARMUP_CANCELLED_MOVED("warmup-cancelled-moved", "<red>Teleport cancelled because you moved."),
+    WARMUP_CANCELLED_DAMAGED("warmup-cancelled-damaged", "<red>Teleport cancelled because you took damage."),
+    WARMUP_CANCELLED_TARGET_LEFT("warmup-cancelled-target-left", "<player><red> has left, so your teleport was cancelled.", "player"),
+    WARMUP_CANCELLED_NOTICE("warmup-cancelled-notice", "<player><red>'s teleport to you was cancelled.", "player"),
+    REMOTE_ACCEPTED("remote-accepted", "<green>Accepted. </green><player><green> is being sent to this server.", "player"),
+    ACCEPTED_ALL("accepted-all", "<green>You have accepted <count> teleport requests.", "count"),
+    ACCEPTED_ALL_HERE_SKIPPED("accepted-all-here-skipped", "<yellow><count> players asked you to teleport to them. Accept one of them by name.", "count"),
+    REMOTE_CONNECTING("remote-connecting", "<player><green> accepted your teleport request. Sending you to <server>...", "player", "server"),
+
+    TPDENY_USAGE("tpdeny-usage", "<red>Usage: /tpdeny <player> or /tpdeny all"),
+    DENIED("denied", "<player><red> has denied your teleport request.", "player"),
+    DENIED_ALL("denied-all", "<yellow>You have denied <count> teleport requests.", "count"),
+    DENIED_CONFIRM("denied-confirm", "<yellow>You have denied </yellow><player><yellow>'s teleport request.", "player"),
+
+    TPACANCEL_USAGE("tpacancel-usage", "<red>Usage: /tpacancel <player> or /tpacancel all"),
+    CANCELLABLE_REQUESTS("cancellable-requests", "<yellow>You can cancel the following pending requests:"),
+    NO_REQUEST_TO("no-request-to", "<red>You don't have a pending request to </red><player><red>.", "player"),
+    CANCELLED("cancelled", "<yellow>You have cancelled your teleport request."),
+    CANCELLED_TO("cancelled-to", "<yellow>You have cancelled your teleport request to </yellow><player><yellow>.", "player"),
+    CANCELLED_ALL("cancelled-all", "<yellow>You have cancelled all your teleport requests."),
+    CANCELLED_NOTICE("cancelled-notice", "<player><yellow> has cancelled their teleport request.", "player"),
+
+    PLAYER_LEFT_SENT("player-left-sent", "<player><yellow> has left, so your teleport request was cancelled.", "player"),
+    PLAYER_LEFT_RECEIVED("player-left-received", "<player><yellow> has left, so their teleport request was cancelled.", "player"),
+
+    ADMIN_USAGE("admin-usage", "<red>Usage: /simpletpa <reload|stats>"),
+    RELOADED("reloaded", "<green>SimpleTPA configuration reloaded."),
+    STATS_HEADER("stats-header", "<gold>SimpleTPA statistics since startup:"),
+    STATS_REQUESTS("stats-requests", "<yellow>Requests: <created> created, <accepted> accepted, <denied> denied, <cancelled> cancelled, <expired> expired, <pending> pending",
+        "created", "accepted", "denied", "cancelled", "expired", "pending"),
+    STATS_LATENCY("stats-latency", "<yellow><name>: <count> timed, p50 <p50>, p99 <p99>, max <max>", "name", "count", "p50", "p99", "max"),
+    STATS_TELEPORT_FAILURES("stats-teleport-failures", "<yellow>Failed teleports: <count>", "count"),
+
+    TPALOG_USAGE("tpalog-usage", "<red>Usage: /tpalog <player>"),
+    AUDIT_LOG_DISABLED("audit-log-disabled", "<red>The audit log is turned off in config.yml."),
+    AUDIT_LOG_FAILED("audit-log-failed", "<red>Could not read the audit log. See the console for details."),
+    AUDIT_LOG_EMPTY("audit-log-empty", "<yellow>No recent teleports found for <player>.", "player"),
+    AUDIT_LOG_HEADER("audit-log-header", "<gold>Last <count> teleports involving <player>:", "player", "count"),
+    AUDIT_LOG_ENTRY("audit-log-entry", "<gray><time> <yellow><traveller><gray> to <yellow><player><gray> in <world> at <x>, <y>, <z>: <white><outcome>",
+        "time", "traveller", "player", "world", "x", "y", "z", "outcome");
+
+    private final String path;
+    private final String defaultText;
+    private final String[] placeholders;
+
+    Message(String path, String defaultText, String... placeholders) {
+        this.path = path;
+        this.defaultText = defaultText;
+        this.placeholders = placeholders;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    String getDefaultText() {
+        return defaultText;
+    }
+
+    String[] getPlaceholders() {
+        return placeholders;
+    }
+}
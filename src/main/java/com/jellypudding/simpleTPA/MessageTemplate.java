@@ -0,0 +1,126 @@
+package com.jellypudding.simpleTPA;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A MiniMessage string parsed once into an immutable component tree. Each placeholder is
+ * parsed as a marker component, and rendering swaps the markers for the given arguments,
+ * copying only the nodes on the path to a marker.
+ */
+final class MessageTemplate {
+
+    // Private-use characters can't come from config text by accident.
+    private static final char MARKER = '\uE000';
+
+    private final Component component;
+    private final String[] markers;
+
+    private MessageTemplate(Component component, String[] markers) {
+        this.component = component;
+        this.markers = markers;
+    }
+
+    static MessageTemplate parse(MiniMessage miniMessage, String text, String... placeholders) {
+        String[] markers = new String[placeholders.length];
+        TagResolver[] resolvers = new TagResolver[placeholders.length];
+        for (int i = 0; i < placeholders.length; i++) {
+            markers[i] = MARKER + Integer.toString(i) + MARKER;
+            resolvers[i] = Placeholder.component(placeholders[i], Component.text(markers[i]));
+        }
+        return new MessageTemplate(isolateMarkers(miniMessage.deserialize(text, resolvers)), markers);
+    }
+
+    /**
+     * MiniMessage compacts adjacent text with the same style, which can merge a marker into the
+     * text around it. Split such text so every marker ends up as a node of its own.
+     */
+    private static Component isolateMarkers(Component node) {
+        List<Component> children = node.children();
+        List<Component> isolated = new ArrayList<>(children.size());
+        for (Component child : children) {
+            isolated.add(isolateMarkers(child));
+        }
+
+        if (node instanceof TextComponent text && text.content().indexOf(MARKER) >= 0
+                && !(children.isEmpty() && isMarker(text.content()))) {
+            List<Component> parts = new ArrayList<>();
+            String content = text.content();
+            int start = 0;
+            while (start < content.length()) {
+                int open = content.indexOf(MARKER, start);
+                int close = open < 0 ? -1 : content.indexOf(MARKER, open + 1);
+                if (close < 0) {
+                    parts.add(Component.text(content.substring(start)));
+                    break;
+                }
+                if (open > start) {
+                    parts.add(Component.text(content.substring(start, open)));
+                }
+                parts.add(Component.text(content.substring(open, close + 1)));
+                start = close + 1;
+            }
+            parts.addAll(isolated);
+            return Component.text("", text.style()).children(parts);
+        }
+
+        return node.children(isolated);
+    }
+
+    private static boolean isMarker(String content) {
+        return content.length() >= 3 && content.charAt(0) == MARKER && content.charAt(content.length() - 1) == MARKER
+                && content.indexOf(MARKER, 1) == content.length() - 1;
+    }
+
+    /**
+     * Returns the message with the placeholders filled in, in the order they were declared.
+     */
+    Component render(Component... arguments) {
+        if (markers.length == 0) {
+            return component;
+        }
+        return substitute(component, arguments);
+    }
+
+    private Component substitute(Component node, Component[] arguments) {
+        if (node instanceof TextComponent text && node.children().isEmpty()) {
+            int slot = slotOf(text.content());
+            if (slot >= 0) {
+                return slot < arguments.length ? arguments[slot] : Component.empty();
+            }
+            return node;
+        }
+
+        List<Component> children = node.children();
+        List<Component> replaced = null;
+        for (int i = 0; i < children.size(); i++) {
+            Component child = children.get(i);
+            Component result = substitute(child, arguments);
+            if (result != child) {
+                if (replaced == null) {
+                    replaced = new ArrayList<>(children);
+                }
+                replaced.set(i, result);
+            }
+        }
+        return replaced == null ? node : node.children(replaced);
+    }
+
+    private int slotOf(String content) {
+        if (!isMarker(content)) {
+            return -1;
+        }
+        for (int i = 0; i < markers.length; i++) {
+            if (markers[i].equals(content)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,46 @@
+package com.jellypudding.simpleTPA;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.EnumMap;
+import java.util.logging.Logger;
+
+/**
+ * Player-facing messages, read from the {@code messages} section of config.yml and parsed
+ * once per load. Handlers only fill in placeholders, so nothing is parsed per command.
+ */
+final class Messages {
+
+    private final MiniMessage miniMessage = MiniMessage.miniMessage();
+
+    // Swapped as a whole on reload so readers on other threads never see a partial set.
+    private volatile EnumMap<Message, MessageTemplate> templates = new EnumMap<>(Message.class);
+
+    void load(ConfigurationSection section, Logger logger) {
+        EnumMap<Message, MessageTemplate> loaded = new EnumMap<>(Message.class);
+        for (Message message : Message.values()) {
+            String text = section == null ? null : section.getString(message.getPath());
+            if (text == null) {
+                text = message.getDefaultText();
+            }
+
+            try {
+                loaded.put(message, MessageTemplate.parse(miniMessage, text, message.getPlaceholders()));
+            } catch (RuntimeException e) {
+                logger.warning("Invalid message 'messages." + message.getPath() + "', using the default: " + e.getMessage());
+                loaded.put(message, MessageTemplate.parse(miniMessage, message.getDefaultText(), message.getPlaceholders()));
+            }
+        }
+        templates = loaded;
+    }
+
+    Component get(Message message, Component... arguments) {
+        return templates.get(message).render(arguments);
+    }
+
+    Component get(Message message, String argument) {
+        return get(message, Component.text(argument));
+    }
+}
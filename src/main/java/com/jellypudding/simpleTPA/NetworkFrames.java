@@ -0,0 +1,150 @@
+package com.jellypudding.simpleTPA;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary encoding of batches of {@link NetworkMessage}s. A frame is a short header naming the
+ * sending server followed by the messages, each a type byte and only the fields that type uses.
+ */
+final class NetworkFrames {
+
+    private static final short MAGIC = 0x5450;
+    private static final byte VERSION = 1;
+
+    // The message count is an unsigned short.
+    private static final int MAX_MESSAGES = 0xFFFF;
+
+    private NetworkFrames() {
+    }
+
+    /**
+     * Encodes the messages into as few frames as possible, none larger than {@code maxFrameBytes}.
+     */
+    static List<byte[]> encode(String origin, List<NetworkMessage> messages, int maxFrameBytes) {
+        List<byte[]> frames = new ArrayList<>();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(scratch);
+        int headerBytes = header(origin, 0).length;
+        int count = 0;
+
+        try {
+            for (NetworkMessage message : messages) {
+                scratch.reset();
+                write(out, message);
+
+                if (count > 0 && (headerBytes + body.size() + scratch.size() > maxFrameBytes || count == MAX_MESSAGES)) {
+                    frames.add(frame(origin, count, body));
+                    body.reset();
+                    count = 0;
+                }
+                scratch.writeTo(body);
+                count++;
+            }
+            if (count > 0) {
+                frames.add(frame(origin, count, body));
+            }
+        } catch (IOException e) {
+            // Only thrown by the streams for I/O, which in-memory streams never do.
+            throw new UncheckedIOException(e);
+        }
+        return frames;
+    }
+
+    static Frame decode(byte[] frame) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame));
+        if (in.readShort() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a SimpleTPA frame");
+        }
+
+        String origin = in.readUTF();
+        int count = in.readUnsignedShort();
+        List<NetworkMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(read(in));
+        }
+        return new Frame(origin, messages);
+    }
+
+    private static byte[] frame(String origin, int count, ByteArrayOutputStream body) throws IOException {
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write(header(origin, count));
+        body.writeTo(frame);
+        return frame.toByteArray();
+    }
+
+    private static byte[] header(String origin, int count) {
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(header);
+        try {
+            out.writeShort(MAGIC);
+            out.writeByte(VERSION);
+            out.writeUTF(origin);
+            out.writeShort(count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return header.toByteArray();
+    }
+
+    private static void write(DataOutputStream out, NetworkMessage message) throws IOException {
+        NetworkMessage.Type type = message.type();
+        out.writeByte(type.ordinal());
+
+        switch (type) {
+            case HELLO -> {
+            }
+            case PLAYER_JOIN -> {
+                writeUUID(out, message.player());
+                out.writeUTF(message.name());
+            }
+            case PLAYER_LEAVE -> writeUUID(out, message.player());
+            case REQUEST_CREATE -> {
+                writeUUID(out, message.player());
+                writeUUID(out, message.target());
+                out.writeUTF(message.name());
+                out.writeLong(message.expiresAt());
+            }
+            default -> {
+                writeUUID(out, message.player());
+                writeUUID(out, message.target());
+            }
+        }
+    }
+
+    private static NetworkMessage read(DataInputStream in) throws IOException {
+        int id = in.readUnsignedByte();
+        NetworkMessage.Type type = NetworkMessage.Type.byId(id);
+        if (type == null) {
+            throw new IOException("Unknown message type " + id);
+        }
+
+        return switch (type) {
+            case HELLO -> NetworkMessage.hello();
+            case PLAYER_JOIN -> NetworkMessage.playerJoin(readUUID(in), in.readUTF());
+            case PLAYER_LEAVE -> NetworkMessage.playerLeave(readUUID(in));
+            case REQUEST_CREATE -> new NetworkMessage(type, readUUID(in), readUUID(in), in.readUTF(), in.readLong());
+            default -> NetworkMessage.request(type, readUUID(in), readUUID(in));
+        };
+    }
+
+    private static void writeUUID(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUUID(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    record Frame(String origin, List<NetworkMessage> messages) {
+    }
+}
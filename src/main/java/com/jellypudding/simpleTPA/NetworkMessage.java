@@ -0,0 +1,54 @@
+package com.jellypudding.simpleTPA;
+
+import java.util.UUID;
+
+/**
+ * One event sent between servers. For request events {@code player} is the requester and
+ * {@code target} the target; presence events only use {@code player} and {@code name}.
+ *
+ * @param name the player's name, for presence and request-created events
+ * @param expiresAt the request's deadline in wall-clock milliseconds, for request-created events
+ */
+record NetworkMessage(Type type, UUID player, UUID target, String name, long expiresAt) {
+
+    enum Type {
+        // A server has started and wants everyone to announce their players again.
+        HELLO,
+        PLAYER_JOIN,
+        PLAYER_LEAVE,
+        REQUEST_CREATE,
+        REQUEST_ACCEPT,
+        REQUEST_DENY,
+        REQUEST_CANCEL,
+        // The request was dropped because the sending server's player is no longer there.
+        REQUEST_LEFT,
+        // The target's inbox was full, so their oldest request was dropped.
+        REQUEST_DROPPED;
+
+        private static final Type[] VALUES = values();
+
+        static Type byId(int id) {
+            return id >= 0 && id < VALUES.length ? VALUES[id] : null;
+        }
+    }
+
+    static NetworkMessage hello() {
+        return new NetworkMessage(Type.HELLO, null, null, null, 0L);
+    }
+
+    static NetworkMessage playerJoin(UUID player, String name) {
+        return new NetworkMessage(Type.PLAYER_JOIN, player, null, name, 0L);
+    }
+
+    static NetworkMessage playerLeave(UUID player) {
+        return new NetworkMessage(Type.PLAYER_LEAVE, player, null, null, 0L);
+    }
+
+    static NetworkMessage requestCreate(TeleportRequest request, String requesterName, long expiresAt) {
+        return new NetworkMessage(Type.REQUEST_CREATE, request.getRequester(), request.getTarget(), requesterName, expiresAt);
+    }
+
+    static NetworkMessage request(Type type, UUID requester, UUID target) {
+        return new NetworkMessage(type, requester, target, null, 0L);
+    }
+}
@@ -0,0 +1,28 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries network frames between the servers behind a proxy.
+ */
+interface NetworkTransport {
+
+    /**
+     * Starts delivering frames sent by other servers to the receiver.
+     */
+    void open(Consumer<byte[]> receiver);
+
+    /**
+     * Sends a frame to every other server.
+     */
+    void broadcast(byte[] frame);
+
+    /**
+     * Moves a player on this server to another server.
+     */
+    void connect(Player player, String server);
+
+    void close();
+}
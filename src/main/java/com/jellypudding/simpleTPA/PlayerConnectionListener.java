@@ -0,0 +1,31 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Keeps the player sessions and online name index up to date and drops a player's pending requests as soon as
+ * they leave the server.
+ */
+final class PlayerConnectionListener implements Listener {
+
+    private final SimpleTPA plugin;
+
+    PlayerConnectionListener(SimpleTPA plugin) {
+        this.plugin = plugin;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.handlePlayerJoin(event.getPlayer());
+    }
+
+    // Kicked players fire this too, once the kick has gone through.
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        plugin.handlePlayerLeave(event.getPlayer());
+    }
+}
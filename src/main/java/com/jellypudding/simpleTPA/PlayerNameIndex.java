@@ -0,0 +1,100 @@
+package com.jellypudding.simpleTPA;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Sorted index of online player names for prefix lookups during tab completion.
+ * Joins and quits copy the arrays, while lookups read an immutable snapshot, so queries
+ * can run from any thread in O(log n + k).
+ */
+final class PlayerNameIndex {
+
+    private static final Snapshot EMPTY = new Snapshot(new String[0], new String[0]);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    synchronized void add(String name) {
+        Snapshot current = snapshot;
+        String lowerName = name.toLowerCase();
+        int index = Arrays.binarySearch(current.lowerNames, lowerName);
+        if (index >= 0) {
+            // Same name already indexed; keep the latest capitalisation.
+            String[] names = current.names.clone();
+            names[index] = name;
+            snapshot = new Snapshot(current.lowerNames, names);
+            return;
+        }
+
+        int insertAt = -index - 1;
+        snapshot = new Snapshot(insert(current.lowerNames, insertAt, lowerName), insert(current.names, insertAt, name));
+    }
+
+    synchronized void remove(String name) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.lowerNames, name.toLowerCase());
+        if (index < 0) {
+            return;
+        }
+
+        snapshot = new Snapshot(delete(current.lowerNames, index), delete(current.names, index));
+    }
+
+    synchronized void clear() {
+        snapshot = EMPTY;
+    }
+
+    int size() {
+        return snapshot.names.length;
+    }
+
+    /**
+     * Returns the names starting with the given lowercase prefix, in alphabetical order.
+     *
+     * @param exclude a name to leave out, usually the sender's own, or null
+     */
+    List<String> complete(String lowerPrefix, String exclude) {
+        Snapshot current = snapshot;
+        String[] lowerNames = current.lowerNames;
+
+        int start = Arrays.binarySearch(lowerNames, lowerPrefix);
+        if (start < 0) {
+            start = -start - 1;
+        }
+
+        List<String> matches = null;
+        for (int i = start; i < lowerNames.length && lowerNames[i].startsWith(lowerPrefix); i++) {
+            String name = current.names[i];
+            if (name.equals(exclude)) {
+                continue;
+            }
+            if (matches == null) {
+                matches = new ArrayList<>();
+            }
+            matches.add(name);
+        }
+
+        return matches == null ? Collections.emptyList() : matches;
+    }
+
+    private static String[] insert(String[] array, int index, String value) {
+        String[] result = new String[array.length + 1];
+        System.arraycopy(array, 0, result, 0, index);
+        result[index] = value;
+        System.arraycopy(array, index, result, index + 1, array.length - index);
+        return result;
+    }
+
+    private static String[] delete(String[] array, int index) {
+        String[] result = new String[array.length - 1];
+        System.arraycopy(array, 0, result, 0, index);
+        System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+        return result;
+    }
+
+    // Parallel arrays: lowercased names sorted, with the original names at the same positions.
+    private record Snapshot(String[] lowerNames, String[] names) {
+    }
+}
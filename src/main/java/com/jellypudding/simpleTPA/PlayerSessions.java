@@ -0,0 +1,96 @@
+package com.jellypudding.simpleTPA;
+
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Players online on this server by UUID, kept up to date from join and quit events. Requests
+ * only hold UUIDs, so handlers resolve the players involved here with one map lookup and skip
+ * anyone who has left, without asking the server or holding on to a stale {@link Player}.
+ */
+final class PlayerSessions {
+
+    private final ConcurrentHashMap<UUID, Session> sessions = new ConcurrentHashMap<>();
+
+    void join(Player player) {
+        sessions.put(player.getUniqueId(), new Session(player));
+    }
+
+    /**
+     * Drops the player's session, unless it belongs to another login with the same UUID: a
+     * player who reconnects can be joined on their new connection before the quit of their old
+     * one is handled, and they are still online then.
+     *
+     * @return whether the session was dropped
+     */
+    boolean leave(Player player) {
+        Session session = sessions.get(player.getUniqueId());
+        return session != null && session.player == player && sessions.remove(player.getUniqueId(), session);
+    }
+
+    /**
+     * Returns the player's session, or null if they aren't online on this server.
+     */
+    Session get(UUID uuid) {
+        return sessions.get(uuid);
+    }
+
+    /**
+     * Returns the player, or null if they aren't online on this server.
+     */
+    Player getPlayer(UUID uuid) {
+        Session session = sessions.get(uuid);
+        return session != null ? session.player : null;
+    }
+
+    Collection<Session> getAll() {
+        return sessions.values();
+    }
+
+    int size() {
+        return sessions.size();
+    }
+
+    void clear() {
+        sessions.clear();
+    }
+
+    /**
+     * An online player with their name and display name, read once rather than per message.
+     */
+    static final class Session {
+
+        private final Player player;
+        private final String name;
+
+        // Other plugins can change the display name at any time, so it is refreshed whenever
+        // the player uses one of our commands.
+        private volatile Component displayName;
+
+        private Session(Player player) {
+            this.player = player;
+            this.name = player.getName();
+            this.displayName = player.displayName();
+        }
+
+        Player getPlayer() {
+            return player;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Component getDisplayName() {
+            return displayName;
+        }
+
+        void refreshDisplayName() {
+            displayName = player.displayName();
+        }
+    }
+}
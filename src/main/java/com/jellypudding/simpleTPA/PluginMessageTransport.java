@@ -0,0 +1,103 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Sends frames through the proxy's BungeeCord plugin messaging channel, which both BungeeCord
+ * and Velocity (with {@code bungee-plugin-message-channel} enabled) understand.
+ *
+ * <p>Plugin messages travel over a player's connection, so frames can only be sent while at
+ * least one player is online here, and the proxy only delivers them to servers with players.
+ */
+final class PluginMessageTransport implements NetworkTransport, PluginMessageListener {
+
+    private static final String CHANNEL = "BungeeCord";
+    private static final String SUBCHANNEL = "SimpleTPA";
+
+    private final Plugin plugin;
+    private volatile Consumer<byte[]> receiver;
+
+    PluginMessageTransport(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void open(Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+        plugin.getServer().getMessenger().registerOutgoingPluginChannel(plugin, CHANNEL);
+        plugin.getServer().getMessenger().registerIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    @Override
+    public void broadcast(byte[] frame) {
+        Iterator<? extends Player> online = Bukkit.getOnlinePlayers().iterator();
+        if (!online.hasNext()) {
+            return;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(frame.length + 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(SUBCHANNEL);
+            out.writeShort(frame.length);
+            out.write(frame);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not encode a plugin message", e);
+            return;
+        }
+        online.next().sendPluginMessage(plugin, CHANNEL, bytes.toByteArray());
+    }
+
+    @Override
+    public void connect(Player player, String server) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeUTF("Connect");
+            out.writeUTF(server);
+        } catch (IOException e) {
+            plugin.getLogger().log(Level.WARNING, "Could not encode a plugin message", e);
+            return;
+        }
+        player.sendPluginMessage(plugin, CHANNEL, bytes.toByteArray());
+    }
+
+    @Override
+    public void close() {
+        plugin.getServer().getMessenger().unregisterOutgoingPluginChannel(plugin, CHANNEL);
+        plugin.getServer().getMessenger().unregisterIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (!CHANNEL.equals(channel)) {
+            return;
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(message));
+        try {
+            if (!SUBCHANNEL.equals(in.readUTF())) {
+                return;
+            }
+            byte[] frame = new byte[in.readUnsignedShort()];
+            in.readFully(frame);
+            receiver.accept(frame);
+        } catch (IOException e) {
+            // Other plugins' messages on the same channel don't have to follow our layout.
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.jellypudding.simpleTPA;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counters and latency histograms for the plugin's hot paths. Updates are striped adders and
+ * atomic bucket increments, so they are safe from any thread and cheap enough to leave on.
+ */
+final class PluginMetrics {
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    final LongAdder requestsCreated = new LongAdder();
+    final LongAdder requestsAccepted = new LongAdder();
+    final LongAdder requestsDenied = new LongAdder();
+    final LongAdder requestsCancelled = new LongAdder();
+    final LongAdder requestsExpired = new LongAdder();
+    final LongAdder requestsRejected = new LongAdder();
+    final LongAdder requestsEvicted = new LongAdder();
+    final LongAdder teleportsFailed = new LongAdder();
+    final LongAdder warmupsCancelled = new LongAdder();
+
+    // Time spent in the command and tab completion handlers, on the calling thread.
+    final LatencyHistogram commandLatency = new LatencyHistogram();
+    final LatencyHistogram tabCompleteLatency = new LatencyHistogram();
+    final LatencyHistogram acceptLatency = new LatencyHistogram();
+
+    // Time from starting a teleport until it completes, including any chunk loading.
+    final LatencyHistogram teleportLatency = new LatencyHistogram();
+
+    private final IntSupplier pendingRequests;
+
+    PluginMetrics(IntSupplier pendingRequests) {
+        this.pendingRequests = pendingRequests;
+    }
+
+    int getPendingRequests() {
+        return pendingRequests.getAsInt();
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format.
+     */
+    String toPrometheusText() {
+        StringBuilder out = new StringBuilder(2048);
+
+        out.append("# HELP simpletpa_requests_total Teleport requests by outcome.\n");
+        out.append("# TYPE simpletpa_requests_total counter\n");
+        appendCounter(out, "created", requestsCreated);
+        appendCounter(out, "accepted", requestsAccepted);
+        appendCounter(out, "denied", requestsDenied);
+        appendCounter(out, "cancelled", requestsCancelled);
+        appendCounter(out, "expired", requestsExpired);
+        appendCounter(out, "rejected", requestsRejected);
+        appendCounter(out, "evicted", requestsEvicted);
+
+        out.append("# HELP simpletpa_teleports_failed_total Accepted requests whose teleport failed.\n");
+        out.append("# TYPE simpletpa_teleports_failed_total counter\n");
+        out.append("simpletpa_teleports_failed_total ").append(teleportsFailed.sum()).append('\n');
+
+        out.append("# HELP simpletpa_warmups_cancelled_total Warmups cancelled by moving, damage or leaving.\n");
+        out.append("# TYPE simpletpa_warmups_cancelled_total counter\n");
+        out.append("simpletpa_warmups_cancelled_total ").append(warmupsCancelled.sum()).append('\n');
+
+        out.append("# HELP simpletpa_pending_requests Requests waiting for an answer.\n");
+        out.append("# TYPE simpletpa_pending_requests gauge\n");
+        out.append("simpletpa_pending_requests ").append(getPendingRequests()).append('\n');
+
+        appendSummary(out, "simpletpa_command_seconds", "Time spent handling commands.", commandLatency);
+        appendSummary(out, "simpletpa_tab_complete_seconds", "Time spent on main-thread tab completion.", tabCompleteLatency);
+        appendSummary(out, "simpletpa_accept_seconds", "Time spent handling /tpaccept.", acceptLatency);
+        appendSummary(out, "simpletpa_teleport_seconds", "Time from starting a teleport until it completes.", teleportLatency);
+        return out.toString();
+    }
+
+    /**
+     * Writes {@link #toPrometheusText()} to the file, replacing it atomically so a scraper never
+     * reads a half-written file.
+     */
+    void writePrometheusFile(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(temp, toPrometheusText(), StandardCharsets.UTF_8);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void appendCounter(StringBuilder out, String outcome, LongAdder counter) {
+        out.append("simpletpa_requests_total{outcome=\"").append(outcome).append("\"} ").append(counter.sum()).append('\n');
+    }
+
+    private static void appendSummary(StringBuilder out, String name, String help, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(" summary\n");
+        for (double quantile : QUANTILES) {
+            out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                .append(seconds(snapshot.valueAt(quantile))).append('\n');
+        }
+        out.append(name).append("_sum ").append(seconds(snapshot.sum())).append('\n');
+        out.append(name).append("_count ").append(snapshot.count()).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    /**
+     * Formats a duration for chat in microseconds, milliseconds or seconds, e.g. "3.2ms".
+     */
+    static String formatNanos(long nanos) {
+        if (nanos < 1_000_000L) {
+            return (nanos / 1_000L) + "\u00b5s";
+        }
+        if (nanos < 1_000_000_000L) {
+            return String.format(Locale.ROOT, "%.1fms", nanos / 1e6);
+        }
+        return String.format(Locale.ROOT, "%.2fs", nanos / 1e9);
+    }
+}
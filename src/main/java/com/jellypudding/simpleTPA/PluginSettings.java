@@ -0,0 +1,184 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An immutable snapshot of config.yml. A reload builds a new one and swaps it in whole, so a
+ * command on any thread reads one consistent set of values without locking. Permission tiers
+ * and per-world rules are turned into lookup tables here, once per load, rather than read
+ * from the config on every command.
+ */
+final class PluginSettings {
+
+    /**
+     * How long a request stays pending, and the same duration formatted for messages.
+     */
+    record Timeout(long ticks, String display) {
+    }
+
+    final Timeout defaultTimeout;
+    final int defaultCooldownTicks;
+
+    // Permission tiers, checked in order: longest timeout first and shortest cooldown first.
+    private final String[] timeoutTierPermissions;
+    private final Timeout[] timeoutTiers;
+    private final String[] cooldownTierPermissions;
+    private final int[] cooldownTierTicks;
+
+    // Whether players may teleport to another world, unless crossWorldRules lists where they are.
+    final boolean allowCrossWorld;
+
+    // Source world name -> the other worlds players there may teleport to.
+    private final Map<String, Set<String>> crossWorldRules;
+
+    final int senderBurst;
+    final int senderRefillTicks;
+    final int targetBurst;
+    final int targetRefillTicks;
+    final int maxIncomingPerTarget;
+    final int maxPendingTotal;
+    final long warmupTicks;
+    final boolean preloadDestinationChunks;
+    final int maxTeleportsPerTick;
+    final boolean safeDestination;
+
+    private PluginSettings(ConfigurationSection config) {
+        // Request timeout in seconds (default 120 seconds / 2 minutes), with longer ones for simpletpa.timeout.<tier>.
+        defaultTimeout = timeout(config.getInt("request-timeout", 120));
+        List<String> timeoutTierNames = tiers(config.getConfigurationSection("timeout-tiers"), true);
+        timeoutTierPermissions = new String[timeoutTierNames.size()];
+        timeoutTiers = new Timeout[timeoutTierNames.size()];
+        for (int i = 0; i < timeoutTierNames.size(); i++) {
+            String tier = timeoutTierNames.get(i);
+            timeoutTierPermissions[i] = "simpletpa.timeout." + tier;
+            timeoutTiers[i] = timeout(config.getInt("timeout-tiers." + tier));
+        }
+
+        // Cooldown in seconds between requests (default 10 seconds), with shorter ones for simpletpa.cooldown.<tier>.
+        defaultCooldownTicks = Math.max(0, config.getInt("request-cooldown", 10)) * 20;
+        List<String> cooldownTierNames = tiers(config.getConfigurationSection("cooldown-tiers"), false);
+        cooldownTierPermissions = new String[cooldownTierNames.size()];
+        cooldownTierTicks = new int[cooldownTierNames.size()];
+        for (int i = 0; i < cooldownTierNames.size(); i++) {
+            String tier = cooldownTierNames.get(i);
+            cooldownTierPermissions[i] = "simpletpa.cooldown." + tier;
+            cooldownTierTicks[i] = Math.max(0, config.getInt("cooldown-tiers." + tier)) * 20;
+        }
+
+        // Whether players may teleport to another dimension, overridden per source world.
+        allowCrossWorld = config.getBoolean("allow-cross-world", false);
+        Map<String, Set<String>> rules = new HashMap<>();
+        ConfigurationSection rulesSection = config.getConfigurationSection("cross-world-rules");
+        if (rulesSection != null) {
+            for (String world : rulesSection.getKeys(false)) {
+                rules.put(world, Set.copyOf(rulesSection.getStringList(world)));
+            }
+        }
+        crossWorldRules = Map.copyOf(rules);
+
+        // Rate limits and caps on pending requests, so a flood of requests stays bounded.
+        senderBurst = config.getInt("rate-limits.sender.burst", 5);
+        senderRefillTicks = secondsToTicks(config.getDouble("rate-limits.sender.refill", 30.0));
+        targetBurst = config.getInt("rate-limits.target.burst", 10);
+        targetRefillTicks = secondsToTicks(config.getDouble("rate-limits.target.refill", 6.0));
+        maxIncomingPerTarget = config.getInt("rate-limits.max-incoming-per-target", 20);
+        maxPendingTotal = config.getInt("rate-limits.max-pending-total", 10000);
+
+        // How long a requester has to stand still after their request is accepted.
+        warmupTicks = Math.max(0, config.getInt("teleport-warmup", 0)) * 20L;
+
+        preloadDestinationChunks = config.getBoolean("preload-destination-chunks", true);
+        maxTeleportsPerTick = config.getInt("max-teleports-per-tick", 5);
+        safeDestination = config.getBoolean("safe-destination", true);
+    }
+
+    static PluginSettings load(ConfigurationSection config) {
+        return new PluginSettings(config);
+    }
+
+    /**
+     * Returns the timeout for requests sent by the given player.
+     */
+    Timeout timeoutFor(Player player) {
+        for (int i = 0; i < timeoutTierPermissions.length; i++) {
+            if (player.hasPermission(timeoutTierPermissions[i])) {
+                return timeoutTiers[i];
+            }
+        }
+        return defaultTimeout;
+    }
+
+    /**
+     * Returns the cooldown the given player gets after sending a request.
+     */
+    int cooldownTicksFor(Player player) {
+        for (int i = 0; i < cooldownTierPermissions.length; i++) {
+            if (player.hasPermission(cooldownTierPermissions[i])) {
+                return cooldownTierTicks[i];
+            }
+        }
+        return defaultCooldownTicks;
+    }
+
+    /**
+     * Returns the permissions for the configured tiers.
+     */
+    List<String> tierPermissions() {
+        List<String> permissions = new ArrayList<>(List.of(timeoutTierPermissions));
+        permissions.addAll(List.of(cooldownTierPermissions));
+        return permissions;
+    }
+
+    /**
+     * Whether a player in one world may be teleported to another. Teleports within a world are
+     * always allowed.
+     */
+    boolean allowsTeleport(World from, World to) {
+        if (from.equals(to)) {
+            return true;
+        }
+        Set<String> destinations = crossWorldRules.get(from.getName());
+        return destinations == null ? allowCrossWorld : destinations.contains(to.getName());
+    }
+
+    private static Timeout timeout(int seconds) {
+        seconds = Math.max(1, seconds);
+        return new Timeout(seconds * 20L, formatDuration(seconds));
+    }
+
+    // Tier names sorted by their value, largest first if descending is set.
+    private static List<String> tiers(ConfigurationSection section, boolean descending) {
+        if (section == null) {
+            return List.of();
+        }
+        List<String> tiers = new ArrayList<>(section.getKeys(false));
+        Comparator<String> byValue = Comparator.comparingInt(section::getInt);
+        tiers.sort(descending ? byValue.reversed() : byValue);
+        return tiers;
+    }
+
+    private static int secondsToTicks(double seconds) {
+        return (int) Math.round(seconds * 20.0);
+    }
+
+    // Formats a duration as e.g. "2 minutes and 30 seconds".
+    static String formatDuration(int totalSeconds) {
+        int minutes = totalSeconds / 60;
+        int seconds = totalSeconds % 60;
+        String display = minutes > 0 ? minutes + " minute" + (minutes > 1 ? "s" : "") : "";
+        if (seconds > 0) {
+            if (!display.isEmpty()) display += " and ";
+            display += seconds + " second" + (seconds > 1 ? "s" : "");
+        }
+        return display;
+    }
+}
@@ -0,0 +1,81 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import java.util.Objects;
+
+/**
+ * Called just before an accepted request teleports a player, after any warmup, on the
+ * travelling player's thread. Cancelling it skips the teleport without a message, so the
+ * listener should tell the players why.
+ */
+public final class PreTpaTeleportEvent extends Event implements Cancellable {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Player player;
+    private final Player destinationPlayer;
+    private Location destination;
+    private boolean cancelled;
+
+    PreTpaTeleportEvent(Player player, Player destinationPlayer, Location destination) {
+        this.player = player;
+        this.destinationPlayer = destinationPlayer;
+        this.destination = destination;
+    }
+
+    /**
+     * Returns the player being teleported: the requester for /tpa, the target for /tpahere.
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    /**
+     * Returns the player being teleported to.
+     */
+    public Player getDestinationPlayer() {
+        return destinationPlayer;
+    }
+
+    public Location getDestination() {
+        return destination;
+    }
+
+    /**
+     * Changes where the player is teleported to. To stop the teleport, cancel the event instead.
+     *
+     * @throws NullPointerException if the destination is null
+     * @throws IllegalArgumentException if the destination's world isn't loaded
+     */
+    public void setDestination(Location destination) {
+        Objects.requireNonNull(destination, "destination");
+        if (!destination.isWorldLoaded()) {
+            throw new IllegalArgumentException("The destination's world isn't loaded");
+        }
+        this.destination = destination;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
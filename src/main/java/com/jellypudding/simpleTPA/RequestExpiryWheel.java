@@ -0,0 +1,126 @@
+package com.jellypudding.simpleTPA;
+
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel that expires teleport requests from a single repeating task.
+ * Each tick only the slot for the current tick is visited, so the work done does not
+ * depend on how many requests are pending, and cancelling a request is O(1).
+ *
+ * <p>Requests may be scheduled and cancelled from any thread; expired requests are handed
+ * to the consumer outside the wheel's lock.
+ */
+final class RequestExpiryWheel {
+
+    // Number of slots; 2048 ticks covers the default two-minute timeout in a single rotation.
+    private static final int WHEEL_SIZE = 2048;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    @SuppressWarnings("unchecked")
+    private final ArrayList<TeleportRequest>[] slots = new ArrayList[WHEEL_SIZE];
+
+    private volatile long currentTick;
+    private int size;
+
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Schedules the request to expire after the given number of ticks, unless it has already
+     * been resolved.
+     */
+    synchronized void schedule(TeleportRequest request, long delayTicks) {
+        // Another thread may have resolved it between adding it to the store and getting here.
+        // Resolving marks the request before cancelling it, so whichever of the two takes the
+        // lock second either sees the mark or finds the request to remove.
+        if (request.isResolved()) {
+            return;
+        }
+
+        long deadline = currentTick + Math.max(1L, delayTicks);
+        int slotIndex = (int) (deadline & MASK);
+
+        ArrayList<TeleportRequest> slot = slots[slotIndex];
+        if (slot == null) {
+            slot = new ArrayList<>();
+            slots[slotIndex] = slot;
+        }
+
+        request.setExpiry(deadline, slotIndex, slot.size());
+        slot.add(request);
+        size++;
+    }
+
+    /**
+     * Removes the request from the wheel if it is still scheduled.
+     */
+    synchronized void cancel(TeleportRequest request) {
+        int slotIndex = request.getWheelSlot();
+        if (slotIndex < 0) {
+            return;
+        }
+
+        ArrayList<TeleportRequest> slot = slots[slotIndex];
+        int position = request.getWheelPosition();
+
+        // Swap the last entry into the freed position so removal doesn't shift the list.
+        TeleportRequest last = slot.remove(slot.size() - 1);
+        if (last != request) {
+            slot.set(position, last);
+            last.setWheelPosition(position);
+        }
+
+        request.clearExpiry();
+        size--;
+    }
+
+    /**
+     * Advances the wheel by one tick and hands every request whose deadline has passed to the consumer.
+     */
+    void tick(Consumer<TeleportRequest> onExpire) {
+        ArrayList<TeleportRequest> expired = advance();
+        if (expired != null) {
+            expired.forEach(onExpire);
+        }
+    }
+
+    private synchronized ArrayList<TeleportRequest> advance() {
+        long tick = currentTick + 1;
+        currentTick = tick;
+
+        ArrayList<TeleportRequest> slot = slots[(int) (tick & MASK)];
+        if (slot == null || slot.isEmpty()) {
+            return null;
+        }
+
+        ArrayList<TeleportRequest> expired = null;
+        for (int i = slot.size() - 1; i >= 0; i--) {
+            TeleportRequest request = slot.get(i);
+            if (request.getExpiresAtTick() <= tick) {
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(request);
+                cancel(request);
+            }
+        }
+        return expired;
+    }
+
+    synchronized void clear() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            ArrayList<TeleportRequest> slot = slots[i];
+            if (slot != null) {
+                slot.forEach(TeleportRequest::clearExpiry);
+                slots[i] = null;
+            }
+        }
+        size = 0;
+    }
+}
@@ -0,0 +1,320 @@
+package com.jellypudding.simpleTPA;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only binary journal of request creations, resolutions and cooldown deadlines, so
+ * pending requests and cooldowns survive a restart. Deadlines are stored as wall-clock
+ * milliseconds, so time spent offline counts against them.
+ *
+ * <p>Records are queued by the calling thread and written by a single background thread,
+ * which drains everything queued since its last write and syncs once per batch. A batch that
+ * fails is cut back off the end of the file and written again, so no record is lost or torn.
+ * The journal is rewritten with only the live state when it is opened and when it is closed,
+ * so it only grows between a start and a clean shutdown.
+ */
+final class RequestJournal {
+
+    // "STPA" followed by a format version.
+    private static final int MAGIC = 0x53545041;
+    private static final int VERSION = 1;
+
+    private static final byte CREATE = 1;
+    private static final byte RESOLVE = 2;
+    private static final byte COOLDOWN = 3;
+    // Laid out like CREATE, for a /tpahere request where the target travels to the requester.
+    private static final byte CREATE_HERE = 4;
+
+    // Type byte plus two UUIDs and two timestamps, the largest record.
+    private static final int MAX_RECORD_BYTES = 1 + 32 + 16;
+
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    // How long to wait before writing a batch again after a failed write.
+    private static final long RETRY_DELAY_MILLIS = 1000L;
+
+    // Queued by close() to tell the writer to flush and stop. Interrupting it instead could
+    // close the channel in the middle of a write.
+    private static final Entry STOP = new Entry((byte) 0, null, null, 0L, 0L);
+
+    private final Path file;
+    private final Logger logger;
+    private final LinkedBlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+
+    private FileChannel channel;
+    private Thread writer;
+
+    RequestJournal(Path file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Replays the journal, rewrites it with only the state that is still live and starts the
+     * writer thread. Returns the live state so the caller can restore it.
+     */
+    State open() throws IOException {
+        long now = System.currentTimeMillis();
+        State state = Files.exists(file) ? replay(now) : new State(List.of(), Map.of());
+        compact(state, now);
+
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        long length = channel.size();
+        writer = new Thread(() -> writeLoop(length), "SimpleTPA Journal");
+        writer.setDaemon(true);
+        writer.start();
+        return state;
+    }
+
+    /**
+     * Records a new request. Must be called after the request is in the store; if it has
+     * already been resolved by then, nothing is written.
+     */
+    void recordCreate(TeleportRequest request, long expiresAt) {
+        // Resolving marks the request before recording it, so under the request's lock either
+        // the create is queued first or it is skipped, and a resolve never precedes its create.
+        synchronized (request) {
+            if (!request.isResolved()) {
+                queue.add(new Entry(request.isHere() ? CREATE_HERE : CREATE, request.getRequester(), request.getTarget(), request.getCreatedAt(), expiresAt));
+            }
+        }
+    }
+
+    /**
+     * Records that a request was accepted, denied, cancelled or expired. Must be called after
+     * {@link TeleportRequest#markResolved()}.
+     */
+    void recordResolve(TeleportRequest request) {
+        synchronized (request) {
+            queue.add(new Entry(RESOLVE, request.getRequester(), request.getTarget(), 0L, 0L));
+        }
+    }
+
+    void recordCooldown(UUID player, long expiresAt) {
+        queue.add(new Entry(COOLDOWN, player, null, 0L, expiresAt));
+    }
+
+    /**
+     * Stops the writer, flushing anything still queued, then rewrites the journal with the given state.
+     */
+    void close(State state) {
+        if (writer != null) {
+            queue.add(STOP);
+            try {
+                writer.join(5000L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writer = null;
+        }
+
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+            compact(state, System.currentTimeMillis());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not compact the request journal", e);
+        }
+    }
+
+    /**
+     * @param committed the journal's length after the last batch that was written in full
+     */
+    private void writeLoop(long committed) {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        List<Entry> batch = new ArrayList<>();
+
+        boolean stopping = false;
+        while (true) {
+            // A batch that failed is retried, with anything queued since, before waiting for more.
+            if (batch.isEmpty()) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            queue.drainTo(batch);
+            stopping |= batch.removeIf(entry -> entry == STOP);
+
+            try {
+                // Cut off whatever part of a failed batch reached the disk, so replay doesn't stop at a torn record.
+                if (channel.size() > committed) {
+                    channel.truncate(committed);
+                }
+                for (Entry entry : batch) {
+                    if (buffer.remaining() < MAX_RECORD_BYTES) {
+                        flush(buffer);
+                    }
+                    entry.writeTo(buffer);
+                }
+                flush(buffer);
+                channel.force(false);
+                committed = channel.size();
+                batch.clear();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not write to the request journal, retrying", e);
+                buffer.clear();
+                // close() rewrites the journal from the live state anyway.
+                if (stopping) {
+                    return;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                continue;
+            }
+
+            if (stopping) {
+                return;
+            }
+        }
+    }
+
+    private void flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private State replay(long now) throws IOException {
+        Map<RequestKey, PendingRequest> requests = new LinkedHashMap<>();
+        Map<UUID, Long> cooldowns = new HashMap<>();
+
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream, BUFFER_BYTES))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a SimpleTPA journal: " + file);
+            }
+
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+
+                // A record cut short by a crash ends the replay at the last complete record.
+                if (type == CREATE || type == CREATE_HERE) {
+                    UUID requester = new UUID(in.readLong(), in.readLong());
+                    UUID target = new UUID(in.readLong(), in.readLong());
+                    long createdAt = in.readLong();
+                    long expiresAt = in.readLong();
+                    requests.put(new RequestKey(requester, target), new PendingRequest(requester, target, createdAt, expiresAt, type == CREATE_HERE));
+                } else if (type == RESOLVE) {
+                    UUID requester = new UUID(in.readLong(), in.readLong());
+                    UUID target = new UUID(in.readLong(), in.readLong());
+                    requests.remove(new RequestKey(requester, target));
+                } else if (type == COOLDOWN) {
+                    UUID player = new UUID(in.readLong(), in.readLong());
+                    cooldowns.put(player, in.readLong());
+                } else {
+                    logger.warning("Request journal has an unknown record type " + type + "; ignoring the rest of it.");
+                    break;
+                }
+            }
+        } catch (EOFException e) {
+            logger.warning("Request journal ends with an incomplete record; it was probably cut short by a crash.");
+        }
+
+        requests.values().removeIf(request -> request.expiresAt() <= now);
+        cooldowns.values().removeIf(expiresAt -> expiresAt <= now);
+        return new State(new ArrayList<>(requests.values()), cooldowns);
+    }
+
+    // Writes the live state to a temporary file and swaps it in, so a crash mid-write leaves the old journal.
+    private void compact(State state, long now) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+            buffer.putInt(MAGIC).putInt(VERSION);
+
+            for (PendingRequest request : state.requests()) {
+                if (request.expiresAt() <= now) {
+                    continue;
+                }
+                if (buffer.remaining() < MAX_RECORD_BYTES) {
+                    drain(out, buffer);
+                }
+                new Entry(request.here() ? CREATE_HERE : CREATE, request.requester(), request.target(), request.createdAt(), request.expiresAt()).writeTo(buffer);
+            }
+            for (Map.Entry<UUID, Long> cooldown : state.cooldowns().entrySet()) {
+                if (cooldown.getValue() <= now) {
+                    continue;
+                }
+                if (buffer.remaining() < MAX_RECORD_BYTES) {
+                    drain(out, buffer);
+                }
+                new Entry(COOLDOWN, cooldown.getKey(), null, 0L, cooldown.getValue()).writeTo(buffer);
+            }
+
+            drain(out, buffer);
+            out.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * A request that was still pending, with its deadline in wall-clock milliseconds.
+     */
+    record PendingRequest(UUID requester, UUID target, long createdAt, long expiresAt, boolean here) {
+    }
+
+    /**
+     * Pending requests and cooldown deadlines (wall-clock milliseconds) to restore or to compact.
+     */
+    record State(List<PendingRequest> requests, Map<UUID, Long> cooldowns) {
+    }
+
+    private record RequestKey(UUID requester, UUID target) {
+    }
+
+    private record Entry(byte type, UUID first, UUID second, long createdAt, long expiresAt) {
+
+        void writeTo(ByteBuffer buffer) {
+            buffer.put(type);
+            buffer.putLong(first.getMostSignificantBits()).putLong(first.getLeastSignificantBits());
+            if (type == COOLDOWN) {
+                buffer.putLong(expiresAt);
+                return;
+            }
+
+            buffer.putLong(second.getMostSignificantBits()).putLong(second.getLeastSignificantBits());
+            if (type == CREATE || type == CREATE_HERE) {
+                buffer.putLong(createdAt).putLong(expiresAt);
+            }
+        }
+    }
+}
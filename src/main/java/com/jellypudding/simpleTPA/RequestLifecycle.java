@@ -0,0 +1,591 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The pending requests and everything that decides what happens to them: admitting, creating,
+ * resolving and expiring requests, players joining and leaving, and the request events shared
+ * with other servers. {@link SimpleTPA} wraps it with commands and messages, and the lifecycle
+ * simulation drives this same class, so what the simulation checks is what the server runs.
+ *
+ * <p>A request is acted on only by whoever removes it from the store, and removing it releases
+ * everything held for it, so a concurrent accept, deny, expiry and leave can't both act on one
+ * request. Every method can be called from any thread.
+ */
+final class RequestLifecycle {
+
+    // Real-time length of a server tick, for converting deadlines to and from wall-clock times.
+    static final long MILLIS_PER_TICK = 50L;
+
+    // How long a requester sent here from another server has to arrive (30 seconds).
+    private static final long ARRIVAL_TIMEOUT_MILLIS = 30_000L;
+
+    /**
+     * What the plugin does about lifecycle events, such as journaling them or telling the
+     * players involved. Called on whichever thread caused the event.
+     */
+    interface Listener {
+
+        // A request has started, and runs out at the given wall-clock time.
+        default void created(TeleportRequest request, long expiresAt) {
+        }
+
+        default void cooldownStarted(UUID player, long expiresAt) {
+        }
+
+        // A request was removed from the store, whatever the reason. Called once per request.
+        default void resolved(TeleportRequest request) {
+        }
+
+        default void expired(TeleportRequest request) {
+        }
+
+        // The target's inbox was full, so this, their oldest request, was dropped.
+        default void evicted(TeleportRequest request) {
+        }
+
+        // A player on another server sent a request to a player on this one.
+        default void received(TeleportRequest request, String requesterName, long expiresAt) {
+        }
+
+        // Another server accepted, denied, cancelled or dropped a request kept here too.
+        default void resolvedRemotely(String origin, NetworkMessage.Type type, TeleportRequest request) {
+        }
+    }
+
+    // Pending requests, indexed by both requester and target.
+    private final TeleportRequestStore store = new TeleportRequestStore();
+
+    // Expires pending requests from one repeating task; its tick is the clock for everything here.
+    private final RequestExpiryWheel expiryWheel = new RequestExpiryWheel();
+
+    // Cooldown deadlines per player.
+    private final CooldownTracker cooldowns = new CooldownTracker();
+
+    // Token buckets limiting how fast each player can send and receive requests.
+    private final TokenBucketLimiter senderLimiter = new TokenBucketLimiter();
+    private final TokenBucketLimiter targetLimiter = new TokenBucketLimiter();
+
+    // Players online on this server, which requests resolve their UUIDs through.
+    private final PlayerSessions sessions = new PlayerSessions();
+
+    // Online player names and cached request names for tab completion.
+    private final RequestTabCompleter tabCompleter = new RequestTabCompleter(store, this::nameOf);
+
+    private final PluginMetrics metrics = new PluginMetrics(store::size);
+    private final Listener listener;
+
+    // Link to the other servers behind the proxy; null unless the network is enabled.
+    private CrossServerNetwork network;
+
+    RequestLifecycle(Listener listener) {
+        this.listener = listener;
+    }
+
+    TeleportRequestStore getStore() {
+        return store;
+    }
+
+    RequestExpiryWheel getExpiryWheel() {
+        return expiryWheel;
+    }
+
+    CooldownTracker getCooldowns() {
+        return cooldowns;
+    }
+
+    TokenBucketLimiter getSenderLimiter() {
+        return senderLimiter;
+    }
+
+    TokenBucketLimiter getTargetLimiter() {
+        return targetLimiter;
+    }
+
+    PlayerSessions getSessions() {
+        return sessions;
+    }
+
+    RequestTabCompleter getTabCompleter() {
+        return tabCompleter;
+    }
+
+    PluginMetrics getMetrics() {
+        return metrics;
+    }
+
+    CrossServerNetwork getNetwork() {
+        return network;
+    }
+
+    int currentTick() {
+        return (int) expiryWheel.getCurrentTick();
+    }
+
+    /**
+     * Starts a session for a player who has joined and announces them to the other servers.
+     *
+     * @return who the player should be teleported to because a request accepted here sent them
+     *         over from another server, or null
+     */
+    UUID join(Player player) {
+        sessions.join(player);
+        tabCompleter.getNameIndex().add(player.getName());
+
+        if (network == null) {
+            return null;
+        }
+        // With nobody online we could neither send nor receive, so start over with the other servers.
+        if (sessions.size() == 1) {
+            sayHello();
+        } else {
+            network.send(NetworkMessage.playerJoin(player.getUniqueId(), player.getName()));
+        }
+        return network.takeArrival(player.getUniqueId(), System.currentTimeMillis());
+    }
+
+    /**
+     * Ends the session of a player who is leaving, removes every request sent by or to them and
+     * tells the other servers. A quit that belongs to an older login of a player who has since
+     * joined again changes nothing.
+     *
+     * @return the removed requests, or null if the player is still online on a newer login
+     */
+    List<TeleportRequest> leave(Player player) {
+        if (!sessions.leave(player)) {
+            return null;
+        }
+
+        UUID playerUUID = player.getUniqueId();
+        List<TeleportRequest> removed = store.removeAll(playerUUID);
+        for (TeleportRequest request : removed) {
+            onResolved(request);
+            announceResolution(request, NetworkMessage.Type.REQUEST_LEFT);
+        }
+
+        // A player switching servers may already be listed on their new one.
+        if (network == null || !network.isRemote(playerUUID)) {
+            tabCompleter.getNameIndex().remove(player.getName());
+        }
+        tabCompleter.invalidate(playerUUID);
+
+        if (network != null) {
+            network.send(NetworkMessage.playerLeave(playerUUID));
+        }
+        return removed;
+    }
+
+    /**
+     * Decides whether a request may be sent. The duplicate check and the server-wide ceiling
+     * come before the sender and target rate limits, so a request refused for any other reason
+     * doesn't use up a token.
+     *
+     * @return why the request is refused, or null if it may be sent
+     */
+    Message admit(UUID sender, UUID target, int maxPendingTotal, int currentTick) {
+        if (store.contains(sender, target)) {
+            return Message.ALREADY_PENDING;
+        }
+
+        Message refusal = null;
+        if (maxPendingTotal > 0 && store.size() >= maxPendingTotal) {
+            refusal = Message.SERVER_REQUEST_LIMIT;
+        } else if (!senderLimiter.tryAcquire(sender, currentTick)) {
+            refusal = Message.RATE_LIMITED_SENDER;
+        } else if (!targetLimiter.tryAcquire(target, currentTick)) {
+            // The sender's token goes back, so a busy target doesn't count against them.
+            senderLimiter.refund(sender, currentTick);
+            refusal = Message.RATE_LIMITED_TARGET;
+        }
+
+        if (refusal != null) {
+            metrics.requestsRejected.increment();
+        }
+        return refusal;
+    }
+
+    /**
+     * Adds a request to a player on this server; {@link #start} or {@link #schedule} then starts
+     * its timeout. If the target left while it was being added, which on Folia happens on their
+     * own thread, it is resolved straight away: leaving drops the session before removing the
+     * player's requests, so if the session is still here the leave will find this one.
+     *
+     * @return the request, already resolved if the target has left, or null if the requester
+     *         already has one pending to the target
+     */
+    TeleportRequest create(UUID requester, UUID target, boolean here) {
+        TeleportRequest request = store.add(requester, target, System.currentTimeMillis(), here);
+        if (request != null && sessions.get(target) == null) {
+            resolve(request);
+        }
+        return request;
+    }
+
+    /**
+     * Adds a request to a player on another server, starts it and sends it to their server,
+     * which applies its own inbox cap when it arrives.
+     *
+     * @return the request, or null if the requester already has one pending to the target
+     */
+    TeleportRequest createRemote(UUID requester, String requesterName, UUID target, int cooldownTicks,
+                                 PluginSettings.Timeout timeout, int currentTick) {
+        TeleportRequest request = store.add(requester, target, System.currentTimeMillis());
+        if (request == null) {
+            return null;
+        }
+
+        start(request, cooldownTicks, timeout, currentTick);
+        network.send(NetworkMessage.requestCreate(request, requesterName, request.getCreatedAt() + timeout.ticks() * MILLIS_PER_TICK));
+        return request;
+    }
+
+    /**
+     * Starts the requester's cooldown and the timeout of a request that was just created.
+     */
+    void start(TeleportRequest request, int cooldownTicks, PluginSettings.Timeout timeout, int currentTick) {
+        cooldowns.start(request.getRequester(), currentTick, cooldownTicks);
+        if (cooldownTicks > 0) {
+            listener.cooldownStarted(request.getRequester(), request.getCreatedAt() + cooldownTicks * MILLIS_PER_TICK);
+        }
+
+        schedule(request, timeout);
+    }
+
+    /**
+     * Starts the timeout of a request that was just created, without a cooldown. The deadline
+     * is fixed here, so a reload doesn't move it.
+     */
+    void schedule(TeleportRequest request, PluginSettings.Timeout timeout) {
+        metrics.requestsCreated.increment();
+
+        expiryWheel.schedule(request, timeout.ticks());
+        tabCompleter.invalidate(request);
+        listener.created(request, request.getCreatedAt() + timeout.ticks() * MILLIS_PER_TICK);
+    }
+
+    /**
+     * Puts a journaled request back after a restart, to run out after the given number of
+     * ticks. It is already in the journal, so the listener isn't told it was created.
+     *
+     * @return whether it is pending again
+     */
+    boolean restore(UUID requester, UUID target, long createdAt, boolean here, long remainingTicks) {
+        TeleportRequest request = store.add(requester, target, createdAt, here);
+        if (request == null) {
+            return false;
+        }
+        if (sessions.get(target) == null) {
+            resolve(request);
+            return false;
+        }
+
+        expiryWheel.schedule(request, remainingTicks);
+        tabCompleter.invalidate(request);
+        return true;
+    }
+
+    /**
+     * Drops the target's oldest incoming requests until they are within the inbox cap, so
+     * their /tpaccept list stays short however many players send them requests.
+     */
+    void enforceInboxCap(UUID target, int maxIncomingPerTarget) {
+        if (maxIncomingPerTarget <= 0) {
+            return;
+        }
+
+        while (store.countIncoming(target) > maxIncomingPerTarget) {
+            TeleportRequest oldest = store.getOldestIncoming(target);
+            if (oldest == null) {
+                return;
+            }
+            if (!resolve(oldest)) {
+                continue;
+            }
+
+            metrics.requestsEvicted.increment();
+            announceResolution(oldest, NetworkMessage.Type.REQUEST_DROPPED);
+            listener.evicted(oldest);
+        }
+    }
+
+    /**
+     * Removes the request from the store. Only the caller that gets true may act on it, so
+     * concurrent accept/deny/expiry can't both succeed.
+     */
+    boolean resolve(TeleportRequest request) {
+        if (!store.remove(request)) {
+            return false;
+        }
+        onResolved(request);
+        return true;
+    }
+
+    /**
+     * Resolves the request as accepted. A requester on another server is asked to come over,
+     * and is teleported to the target when they join; one on this server is left to the caller.
+     *
+     * @return false if the request was already resolved
+     */
+    boolean accept(TeleportRequest request) {
+        if (!resolve(request)) {
+            return false;
+        }
+        metrics.requestsAccepted.increment();
+
+        UUID requester = request.getRequester();
+        if (network != null && sessions.get(requester) == null && network.isRemote(requester)) {
+            network.expectArrival(requester, request.getTarget(), System.currentTimeMillis() + ARRIVAL_TIMEOUT_MILLIS);
+            network.send(NetworkMessage.request(NetworkMessage.Type.REQUEST_ACCEPT, requester, request.getTarget()));
+        }
+        return true;
+    }
+
+    /**
+     * Resolves the request as denied and tells the requester's server, if it is another one.
+     *
+     * @return false if the request was already resolved
+     */
+    boolean deny(TeleportRequest request) {
+        if (!resolve(request)) {
+            return false;
+        }
+        metrics.requestsDenied.increment();
+        announceResolution(request, NetworkMessage.Type.REQUEST_DENY);
+        return true;
+    }
+
+    /**
+     * Denies the request from requester to target.
+     *
+     * @return the request, or null if there was none pending
+     */
+    TeleportRequest deny(UUID requester, UUID target) {
+        TeleportRequest request = store.get(requester, target);
+        return request != null && deny(request) ? request : null;
+    }
+
+    /**
+     * Resolves the request as cancelled and tells the target's server, if it is another one.
+     *
+     * @return false if the request was already resolved
+     */
+    boolean cancel(TeleportRequest request) {
+        if (!resolve(request)) {
+            return false;
+        }
+        metrics.requestsCancelled.increment();
+        announceResolution(request, NetworkMessage.Type.REQUEST_CANCEL);
+        return true;
+    }
+
+    /**
+     * Cancels the request from requester to target.
+     *
+     * @return the request, or null if there was none pending
+     */
+    TeleportRequest cancel(UUID requester, UUID target) {
+        TeleportRequest request = store.get(requester, target);
+        return request != null && cancel(request) ? request : null;
+    }
+
+    /**
+     * Advances the clock by one tick and expires every request whose timeout has run out.
+     * Called once per tick.
+     */
+    void tick() {
+        expiryWheel.tick(this::expire);
+    }
+
+    /**
+     * Drops cooldowns, rate limit buckets and expected arrivals that have run out, so nothing
+     * grows with every player who ever sent a request.
+     */
+    void sweep(int currentTick) {
+        cooldowns.sweep(currentTick);
+        senderLimiter.sweep(currentTick);
+        targetLimiter.sweep(currentTick);
+        if (network != null) {
+            network.sweepArrivals(System.currentTimeMillis());
+        }
+    }
+
+    void clear() {
+        expiryWheel.clear();
+        store.clear();
+        cooldowns.clearAll();
+        senderLimiter.clear();
+        targetLimiter.clear();
+        tabCompleter.clear();
+        sessions.clear();
+    }
+
+    /**
+     * Links this server to the others and says hello to them.
+     */
+    void openNetwork(CrossServerNetwork network) {
+        this.network = network;
+        network.open();
+        sayHello();
+    }
+
+    /**
+     * Tells the other servers that this one's players are gone and unlinks it.
+     */
+    void closeNetwork() {
+        if (network == null) {
+            return;
+        }
+        for (PlayerSessions.Session session : sessions.getAll()) {
+            network.send(NetworkMessage.playerLeave(session.getPlayer().getUniqueId()));
+        }
+        network.close();
+        network = null;
+    }
+
+    /**
+     * Applies an event from another server. Requests involving a player on another server are
+     * kept on both servers, and each server only tells its own players about them.
+     */
+    void receive(String origin, NetworkMessage message, int maxIncomingPerTarget) {
+        CrossServerNetwork network = this.network;
+        if (network == null) {
+            return;
+        }
+
+        switch (message.type()) {
+            case HELLO -> {
+                // The server restarted, so whatever we knew about its players is stale.
+                network.forgetServer(origin).forEach(this::forgetName);
+                announceOnlinePlayers();
+            }
+            case PLAYER_JOIN -> {
+                network.addPlayer(message.player(), message.name(), origin);
+                tabCompleter.getNameIndex().add(message.name());
+            }
+            case PLAYER_LEAVE -> {
+                dropRequestsOf(origin, message.player());
+                CrossServerNetwork.RemotePlayer gone = network.removePlayer(message.player(), origin);
+                if (gone != null) {
+                    forgetName(gone);
+                }
+            }
+            case REQUEST_CREATE -> receiveRequest(origin, message, maxIncomingPerTarget);
+            case REQUEST_ACCEPT, REQUEST_DENY, REQUEST_CANCEL, REQUEST_LEFT, REQUEST_DROPPED -> {
+                TeleportRequest request = store.remove(message.player(), message.target());
+                if (request != null) {
+                    onResolved(request);
+                    listener.resolvedRemotely(origin, message.type(), request);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the name of a player on this server or another one, or null if the player isn't
+     * online anywhere we know of.
+     */
+    String nameOf(UUID uuid) {
+        PlayerSessions.Session session = sessions.get(uuid);
+        if (session != null) {
+            return session.getName();
+        }
+        CrossServerNetwork.RemotePlayer remote = network != null ? network.getPlayer(uuid) : null;
+        return remote != null ? remote.name() : null;
+    }
+
+    static long millisToTicks(long millis) {
+        return Math.max(1L, (millis + MILLIS_PER_TICK - 1) / MILLIS_PER_TICK);
+    }
+
+    private void receiveRequest(String origin, NetworkMessage message, int maxIncomingPerTarget) {
+        // Every server receives every request; only the target's server keeps it.
+        if (sessions.get(message.target()) == null) {
+            return;
+        }
+
+        long remainingMillis = message.expiresAt() - System.currentTimeMillis();
+        if (remainingMillis <= 0) {
+            return;
+        }
+        if (!network.isRemote(message.player())) {
+            network.addPlayer(message.player(), message.name(), origin);
+            tabCompleter.getNameIndex().add(message.name());
+        }
+
+        TeleportRequest request = create(message.player(), message.target(), false);
+        if (request == null || request.isResolved()) {
+            return;
+        }
+        expiryWheel.schedule(request, millisToTicks(remainingMillis));
+        tabCompleter.invalidate(request);
+        listener.created(request, message.expiresAt());
+
+        enforceInboxCap(message.target(), maxIncomingPerTarget);
+        if (!request.isResolved()) {
+            listener.received(request, message.name(), message.expiresAt());
+        }
+    }
+
+    /**
+     * Drops the requests to or from a player who has left another server. Their server has
+     * already told us about the requests it had, so these are ones that were still on the way
+     * to it when they left. Nothing is dropped if the player has since come here or been seen
+     * joining a different server.
+     */
+    private void dropRequestsOf(String origin, UUID player) {
+        CrossServerNetwork.RemotePlayer leaving = network.getPlayer(player);
+        if (leaving == null || !leaving.server().equals(origin) || sessions.get(player) != null) {
+            return;
+        }
+        for (TeleportRequest request : store.removeAll(player)) {
+            onResolved(request);
+            listener.resolvedRemotely(origin, NetworkMessage.Type.REQUEST_LEFT, request);
+        }
+    }
+
+    private void expire(TeleportRequest request) {
+        if (!resolve(request)) {
+            return;
+        }
+        metrics.requestsExpired.increment();
+        listener.expired(request);
+    }
+
+    // Releases everything held for a request that has just been removed from the store.
+    private void onResolved(TeleportRequest request) {
+        request.markResolved();
+        expiryWheel.cancel(request);
+        tabCompleter.invalidate(request);
+        listener.resolved(request);
+    }
+
+    // Tells the other party's server that a request was resolved here, if they are on another server.
+    private void announceResolution(TeleportRequest request, NetworkMessage.Type type) {
+        if (network != null && (network.isRemote(request.getRequester()) || network.isRemote(request.getTarget()))) {
+            network.send(NetworkMessage.request(type, request.getRequester(), request.getTarget()));
+        }
+    }
+
+    // Asks the other servers to announce their players again, and announces ours.
+    private void sayHello() {
+        network.forgetAll().forEach(this::forgetName);
+        network.send(NetworkMessage.hello());
+        announceOnlinePlayers();
+    }
+
+    private void announceOnlinePlayers() {
+        for (PlayerSessions.Session session : sessions.getAll()) {
+            network.send(NetworkMessage.playerJoin(session.getPlayer().getUniqueId(), session.getName()));
+        }
+    }
+
+    // Drops a player who left another server from the name index, unless they are here now.
+    private void forgetName(CrossServerNetwork.RemotePlayer gone) {
+        if (sessions.get(gone.uuid()) == null) {
+            tabCompleter.getNameIndex().remove(gone.name());
+        }
+    }
+}
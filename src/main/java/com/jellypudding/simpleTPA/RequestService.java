@@ -0,0 +1,78 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The {@link TeleportRequestService} registered for other plugins. Queries go straight to the
+ * request store; anything that changes a request goes through the plugin, so it is handled
+ * exactly like the matching command.
+ */
+final class RequestService implements TeleportRequestService {
+
+    private final SimpleTPA plugin;
+    private final TeleportRequestStore teleportRequests;
+
+    RequestService(SimpleTPA plugin, TeleportRequestStore teleportRequests) {
+        this.plugin = plugin;
+        this.teleportRequests = teleportRequests;
+    }
+
+    @Override
+    public TpaRequest getRequest(UUID requester, UUID target) {
+        return teleportRequests.get(requester, target);
+    }
+
+    @Override
+    public boolean hasRequest(UUID requester, UUID target) {
+        return teleportRequests.contains(requester, target);
+    }
+
+    @Override
+    public int countIncoming(UUID target) {
+        return teleportRequests.countIncoming(target);
+    }
+
+    @Override
+    public int countOutgoing(UUID requester) {
+        return teleportRequests.countOutgoing(requester);
+    }
+
+    @Override
+    public int countPending() {
+        return teleportRequests.size();
+    }
+
+    @Override
+    public List<TpaRequest> getIncoming(UUID target) {
+        return Collections.unmodifiableList(teleportRequests.getIncoming(target));
+    }
+
+    @Override
+    public List<TpaRequest> getOutgoing(UUID requester) {
+        return Collections.unmodifiableList(teleportRequests.getOutgoing(requester));
+    }
+
+    @Override
+    public TpaRequest createRequest(Player requester, Player target, boolean here) {
+        return plugin.createRequest(requester, target, here);
+    }
+
+    @Override
+    public boolean acceptRequest(UUID requester, UUID target) {
+        return plugin.acceptRequest(requester, target);
+    }
+
+    @Override
+    public boolean denyRequest(UUID requester, UUID target) {
+        return plugin.denyRequest(requester, target);
+    }
+
+    @Override
+    public boolean cancelRequest(UUID requester, UUID target) {
+        return plugin.cancelRequest(requester, target);
+    }
+}
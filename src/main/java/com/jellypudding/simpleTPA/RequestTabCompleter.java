@@ -0,0 +1,154 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Answers tab completion for the plugin's commands from a sorted name index and per-player
+ * cached lists of pending request names. Cached lists are dropped whenever one of the
+ * player's requests changes and rebuilt on the next completion that can read the store.
+ *
+ * <p>On Folia a request can change on another region while a list is being rebuilt, so a list
+ * is only kept if nothing was invalidated in the meantime.
+ */
+final class RequestTabCompleter {
+
+    private final TeleportRequestStore teleportRequests;
+    private final PlayerNameIndex nameIndex = new PlayerNameIndex();
+
+    // Name of an online player, here or on another server, or null if they are offline.
+    private final Function<UUID, String> nameLookup;
+
+    // Names of the players who sent requests to / were sent requests by each player.
+    private final ConcurrentHashMap<UUID, List<String>> incomingNames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, List<String>> outgoingNames = new ConcurrentHashMap<>();
+
+    // Bumped by every invalidation, so a rebuild can tell whether it raced with one.
+    private final AtomicLong invalidations = new AtomicLong();
+
+    RequestTabCompleter(TeleportRequestStore teleportRequests, Function<UUID, String> nameLookup) {
+        this.teleportRequests = teleportRequests;
+        this.nameLookup = nameLookup;
+    }
+
+    PlayerNameIndex getNameIndex() {
+        return nameIndex;
+    }
+
+    /**
+     * Drops the cached names affected by a request being created or resolved.
+     */
+    void invalidate(TeleportRequest request) {
+        invalidations.incrementAndGet();
+        outgoingNames.remove(request.getRequester());
+        incomingNames.remove(request.getTarget());
+    }
+
+    void invalidate(UUID player) {
+        invalidations.incrementAndGet();
+        outgoingNames.remove(player);
+        incomingNames.remove(player);
+    }
+
+    void clear() {
+        nameIndex.clear();
+        incomingNames.clear();
+        outgoingNames.clear();
+    }
+
+    /**
+     * Completes the first argument of a command, rebuilding the player's cached list from the
+     * request store if it was dropped. Can be called from any thread.
+     */
+    List<String> complete(Player player, String commandName, String partialName) {
+        List<String> completions = completeCached(player, commandName, partialName);
+        if (completions != null) {
+            return completions;
+        }
+
+        UUID playerUUID = player.getUniqueId();
+        boolean outgoing = commandName.equals("tpacancel");
+        ConcurrentHashMap<UUID, List<String>> cache = outgoing ? outgoingNames : incomingNames;
+
+        long seen = invalidations.get();
+        List<String> names = outgoing
+            ? resolveNames(teleportRequests.getOutgoing(playerUUID), false)
+            : resolveNames(teleportRequests.getIncoming(playerUUID), true);
+        cache.put(playerUUID, names);
+        // A request that changed after the store was read may have been invalidated before the put,
+        // which would leave this list cached although it is already out of date.
+        if (invalidations.get() != seen) {
+            cache.remove(playerUUID, names);
+        }
+        return filter(names, partialName.toLowerCase(), true);
+    }
+
+    /**
+     * Completes the first argument of a command without touching the request store, so it is
+     * cheap enough for the async tab-complete event.
+     *
+     * @return the completions, or null if the answer isn't cached and needs {@link #complete}
+     */
+    List<String> completeCached(Player player, String commandName, String partialName) {
+        String lowerPrefix = partialName.toLowerCase();
+
+        switch (commandName) {
+            case "tpa":
+                return nameIndex.complete(lowerPrefix, player.getName());
+            case "tpahere": {
+                List<String> names = nameIndex.complete(lowerPrefix, player.getName());
+                if (!player.hasPermission("simpletpa.tpahere.all") || !"all".startsWith(lowerPrefix)) {
+                    return names;
+                }
+                List<String> completions = new ArrayList<>(names.size() + 1);
+                completions.add("all");
+                completions.addAll(names);
+                return completions;
+            }
+            case "tpalog":
+                return nameIndex.complete(lowerPrefix, null);
+            case "tpaccept":
+            case "tpdeny": {
+                List<String> names = incomingNames.get(player.getUniqueId());
+                return names == null ? null : filter(names, lowerPrefix, true);
+            }
+            case "tpacancel": {
+                List<String> names = outgoingNames.get(player.getUniqueId());
+                return names == null ? null : filter(names, lowerPrefix, true);
+            }
+            default:
+                return Collections.emptyList();
+        }
+    }
+
+    private List<String> resolveNames(Iterable<TeleportRequest> requests, boolean requesters) {
+        List<String> names = new ArrayList<>();
+        for (TeleportRequest request : requests) {
+            String name = nameLookup.apply(requesters ? request.getRequester() : request.getTarget());
+            if (name != null) {
+                names.add(name);
+            }
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    private static List<String> filter(List<String> names, String lowerPrefix, boolean includeAll) {
+        List<String> matches = new ArrayList<>();
+        if (includeAll && "all".startsWith(lowerPrefix)) {
+            matches.add("all");
+        }
+        for (String name : names) {
+            if (name.regionMatches(true, 0, lowerPrefix, 0, lowerPrefix.length())) {
+                matches.add(name);
+            }
+        }
+        return matches;
+    }
+}
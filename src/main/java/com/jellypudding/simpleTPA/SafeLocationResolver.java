@@ -0,0 +1,215 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.Bukkit;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds somewhere safe to stand near a teleport destination without reading the world on the
+ * tick thread. The chunks around the destination are loaded asynchronously through the
+ * {@link TeleportPipeline}, within its per-tick limit, and copied into snapshots on the regions
+ * that own them, and the search runs over the snapshots on an async thread. Results are
+ * cached per destination block for a few seconds, so accepting several requests from one spot
+ * only searches once.
+ *
+ * <p>A spot is safe when the two blocks a player occupies don't suffocate or hurt them and the
+ * block underneath is solid and harmless, or the player would be swimming. Each column is
+ * searched down to the first floor, where a falling player would land, then up out of a wall
+ * or liquid, starting with the destination's own column and moving outwards.
+ */
+final class SafeLocationResolver {
+
+    // How far the search reaches sideways, down and up from the destination block.
+    private static final int RADIUS = 3;
+    private static final int MAX_DROP = 64;
+    private static final int MAX_CLIMB = 8;
+
+    // How long a result is reused for the same destination block.
+    private static final long CACHE_TTL_MILLIS = 5_000L;
+
+    private static final Set<Material> HARMFUL = EnumSet.of(Material.LAVA, Material.FIRE, Material.SOUL_FIRE,
+        Material.CAMPFIRE, Material.SOUL_CAMPFIRE, Material.MAGMA_BLOCK, Material.CACTUS, Material.SWEET_BERRY_BUSH,
+        Material.WITHER_ROSE, Material.POWDER_SNOW, Material.POINTED_DRIPSTONE);
+
+    // Column offsets within the radius, nearest first.
+    private static final int[][] COLUMNS = columnsByDistance();
+
+    private final Plugin plugin;
+    private final TeleportPipeline pipeline;
+    private final ConcurrentHashMap<BlockKey, Spot> cache = new ConcurrentHashMap<>();
+
+    SafeLocationResolver(Plugin plugin, TeleportPipeline pipeline) {
+        this.plugin = plugin;
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Looks for a safe spot near the destination. Completes with the destination itself if it
+     * is already safe, with the centre of the nearest safe block otherwise, or with null if
+     * there is none within range. Can be called from any thread.
+     */
+    CompletableFuture<Location> resolve(Location destination) {
+        World world = destination.getWorld();
+        BlockKey key = new BlockKey(world.getUID(), destination.getBlockX(), destination.getBlockY(), destination.getBlockZ());
+
+        Spot cached = cache.get(key);
+        if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+            return CompletableFuture.completedFuture(cached.toLocation(destination));
+        }
+
+        Area area = new Area(world, key);
+        CompletableFuture<Location> result = new CompletableFuture<>();
+        area.load(pipeline).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+                return;
+            }
+            Bukkit.getAsyncScheduler().runNow(plugin, task -> {
+                try {
+                    Spot spot = area.search(System.currentTimeMillis() + CACHE_TTL_MILLIS);
+                    cache.put(key, spot);
+                    result.complete(spot.toLocation(destination));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        });
+        return result;
+    }
+
+    /**
+     * Drops cached results that have run out.
+     */
+    void sweep(long now) {
+        cache.values().removeIf(spot -> spot.expiresAt() <= now);
+    }
+
+    void clear() {
+        cache.clear();
+    }
+
+    private static boolean isPassable(Material type) {
+        return !type.isSolid() && !HARMFUL.contains(type);
+    }
+
+    private static int[][] columnsByDistance() {
+        List<int[]> columns = new ArrayList<>();
+        for (int dx = -RADIUS; dx <= RADIUS; dx++) {
+            for (int dz = -RADIUS; dz <= RADIUS; dz++) {
+                columns.add(new int[]{dx, dz});
+            }
+        }
+        columns.sort(Comparator.comparingInt(column -> column[0] * column[0] + column[1] * column[1]));
+        return columns.toArray(new int[0][]);
+    }
+
+    private record BlockKey(UUID worldId, int x, int y, int z) {
+    }
+
+    /**
+     * The result of a search: the safe block, or found set to false if there was none.
+     */
+    private record Spot(boolean found, int x, int y, int z, long expiresAt) {
+
+        Location toLocation(Location destination) {
+            if (!found) {
+                return null;
+            }
+            if (x == destination.getBlockX() && y == destination.getBlockY() && z == destination.getBlockZ()) {
+                return destination;
+            }
+            return new Location(destination.getWorld(), x + 0.5, y, z + 0.5, destination.getYaw(), destination.getPitch());
+        }
+    }
+
+    /**
+     * Snapshots of the chunks within the search radius of one destination block.
+     */
+    private static final class Area {
+
+        private final World world;
+        private final BlockKey origin;
+        private final int minY;
+        private final int maxY;
+        private final int minChunkX;
+        private final int minChunkZ;
+        private final int chunksZ;
+        private final ChunkSnapshot[] snapshots;
+
+        Area(World world, BlockKey origin) {
+            this.world = world;
+            this.origin = origin;
+            this.minY = world.getMinHeight();
+            this.maxY = world.getMaxHeight();
+            this.minChunkX = (origin.x() - RADIUS) >> 4;
+            this.minChunkZ = (origin.z() - RADIUS) >> 4;
+            int chunksX = ((origin.x() + RADIUS) >> 4) - minChunkX + 1;
+            this.chunksZ = ((origin.z() + RADIUS) >> 4) - minChunkZ + 1;
+            this.snapshots = new ChunkSnapshot[chunksX * chunksZ];
+        }
+
+        CompletableFuture<Void> load(TeleportPipeline pipeline) {
+            CompletableFuture<?>[] loads = new CompletableFuture<?>[snapshots.length];
+            for (int i = 0; i < snapshots.length; i++) {
+                int index = i;
+                // Copied on the region that owns the chunk, so the search can read it from any thread.
+                loads[i] = pipeline.loadChunk(world, minChunkX + i / chunksZ, minChunkZ + i % chunksZ)
+                    .thenAccept(chunk -> snapshots[index] = chunk.getChunkSnapshot(false, false, false));
+            }
+            return CompletableFuture.allOf(loads);
+        }
+
+        Spot search(long expiresAt) {
+            for (int[] column : COLUMNS) {
+                int x = origin.x() + column[0];
+                int z = origin.z() + column[1];
+
+                // Down to the first floor or pool, where a falling player would stop.
+                for (int y = origin.y(); y > origin.y() - MAX_DROP && y > minY; y--) {
+                    if (isSafe(x, y, z)) {
+                        return new Spot(true, x, y, z, expiresAt);
+                    }
+                    Material feet = typeAt(x, y, z);
+                    if (feet.isSolid() || feet == Material.WATER || feet == Material.LAVA || typeAt(x, y - 1, z).isSolid()) {
+                        break;
+                    }
+                }
+
+                // Up out of a wall or a liquid.
+                for (int y = origin.y() + 1; y <= origin.y() + MAX_CLIMB && y + 1 < maxY; y++) {
+                    if (isSafe(x, y, z)) {
+                        return new Spot(true, x, y, z, expiresAt);
+                    }
+                }
+            }
+            return new Spot(false, 0, 0, 0, expiresAt);
+        }
+
+        private boolean isSafe(int x, int y, int z) {
+            Material feet = typeAt(x, y, z);
+            Material ground = typeAt(x, y - 1, z);
+            return isPassable(feet) && isPassable(typeAt(x, y + 1, z)) && !HARMFUL.contains(ground)
+                && (ground.isSolid() || feet == Material.WATER);
+        }
+
+        private Material typeAt(int x, int y, int z) {
+            if (y < minY || y >= maxY) {
+                return Material.VOID_AIR;
+            }
+            ChunkSnapshot snapshot = snapshots[((x >> 4) - minChunkX) * chunksZ + ((z >> 4) - minChunkZ)];
+            return snapshot.getBlockType(x & 15, y, z & 15);
+        }
+    }
+}
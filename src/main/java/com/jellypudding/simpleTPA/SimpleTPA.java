@@ -1,32 +1,94 @@
 package com.jellypudding.simpleTPA;
 
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissionDefault;
+import org.bukkit.plugin.PluginManager;
+import org.bukkit.plugin.ServicePriority;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitTask;
 import net.kyori.adventure.text.Component;
-import net.kyori.adventure.text.format.NamedTextColor;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public final class SimpleTPA extends JavaPlugin {
 
-    // Map to store teleport requests: key is "requesterUUID:targetUUID", value is timestamp.
-    private final HashMap<String, Long> teleportRequests = new HashMap<>();
-    
-    // Map to store request expiration tasks: key is "requesterUUID:targetUUID", value is BukkitTask.
-    private final HashMap<String, BukkitTask> expirationTasks = new HashMap<>();
-    
-    // Map to store cooldowns: key is player UUID, value is time when cooldown expires.
-    private final HashMap<UUID, Long> cooldowns = new HashMap<>();
+    // Pending requests and everything that decides what happens to them; the commands and
+    // messages here are built around it.
+    private final RequestLifecycle lifecycle = new RequestLifecycle(new LifecycleListener());
 
-    // configuration values.
-    private long requestTimeoutTicks;
-    private long requestCooldownMillis;
-    private boolean allowCrossWorld;
+    // Pending teleport requests, indexed by both requester and target.
+    private final TeleportRequestStore teleportRequests = lifecycle.getStore();
+
+    // Expires pending requests from one repeating task instead of one task per request.
+    private final RequestExpiryWheel expiryWheel = lifecycle.getExpiryWheel();
+    private ScheduledTask expiryTask;
+
+    // Runs teleports through asynchronous chunk loading.
+    private final TeleportPipeline teleportPipeline = new TeleportPipeline(this);
+    private final SafeLocationResolver safeLocations = new SafeLocationResolver(this, teleportPipeline);
+
+    // Accepted teleports waiting out the warmup, checked once per tick.
+    private final WarmupTracker warmups = new WarmupTracker(this, this::finishWarmup);
+    private ScheduledTask warmupTask;
+
+    // Cooldown deadlines per player, in ticks of the expiry wheel's clock.
+    private final CooldownTracker cooldowns = lifecycle.getCooldowns();
+
+    private ScheduledTask cooldownSweepTask;
+
+    // How often expired cooldowns are evicted (1 minute).
+    private static final long COOLDOWN_SWEEP_INTERVAL_TICKS = 20L * 60L;
+
+    // Players online on this server, which requests resolve their UUIDs through.
+    private final PlayerSessions sessions = lifecycle.getSessions();
+
+    // Online player names and cached request names for tab completion.
+    private final RequestTabCompleter tabCompleter = lifecycle.getTabCompleter();
+
+    // Player-facing messages, parsed from config when it is loaded.
+    private final Messages messages = new Messages();
+
+    // Journal of requests and cooldowns kept across restarts; null unless persist-state is enabled.
+    private RequestJournal journal;
+
+    // Journaled requests with a player who isn't online yet, restored once both are, until their deadline.
+    private final Set<RequestJournal.PendingRequest> awaitingRestore = ConcurrentHashMap.newKeySet();
+
+    // Record of every teleport for /tpalog; null unless audit-log.enabled is set.
+    private AuditLog auditLog;
+
+    // Most entries /tpalog shows.
+    private static final int AUDIT_LOOKUP_LIMIT = 10;
+
+    // Flushes events for the other servers behind the proxy; null unless network.enabled is set.
+    private ScheduledTask networkTask;
+
+    // Request counters and hot-path timings, shown by /simpletpa stats.
+    private final PluginMetrics metrics = lifecycle.getMetrics();
+    private ScheduledTask metricsTask;
+
+    private static final List<String> ADMIN_SUBCOMMANDS = List.of("reload", "stats");
+
+    // Audit log times are shown in the server's time zone.
+    private static final DateTimeFormatter AUDIT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    // Configuration values, replaced as a whole by /simpletpa reload. Read it into a local once
+    // per command so every check in that command sees the same snapshot.
+    private volatile PluginSettings settings;
 
     @Override
     public void onEnable() {
@@ -43,55 +105,206 @@ public final class SimpleTPA extends JavaPlugin {
         Objects.requireNonNull(getCommand("tpaccept")).setTabCompleter(this);
         Objects.requireNonNull(getCommand("tpdeny")).setExecutor(this);
         Objects.requireNonNull(getCommand("tpdeny")).setTabCompleter(this);
+        Objects.requireNonNull(getCommand("tpahere")).setExecutor(this);
+        Objects.requireNonNull(getCommand("tpahere")).setTabCompleter(this);
         Objects.requireNonNull(getCommand("tpacancel")).setExecutor(this);
         Objects.requireNonNull(getCommand("tpacancel")).setTabCompleter(this);
+        Objects.requireNonNull(getCommand("tpalog")).setExecutor(this);
+        Objects.requireNonNull(getCommand("tpalog")).setTabCompleter(this);
+        Objects.requireNonNull(getCommand("simpletpa")).setExecutor(this);
+        Objects.requireNonNull(getCommand("simpletpa")).setTabCompleter(this);
+
+        // Track online names for tab completion, before restoring requests that need both players online.
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            lifecycle.join(player);
+        }
+
+        // Restore requests and cooldowns from before the last restart.
+        if (getConfig().getBoolean("persist-state", false)) {
+            openJournal();
+        }
+
+        // Keep a record of teleports for moderators.
+        if (getConfig().getBoolean("audit-log.enabled", false)) {
+            openAuditLog();
+        }
+
+        // Advance the expiry wheel and start queued teleports once per tick on the global region, so it also runs on Folia.
+        expiryTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> {
+            lifecycle.tick();
+            teleportPipeline.tick();
+        }, 1L, 1L);
+
+        // Check players in warmup against their starting block once per tick.
+        warmupTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> warmups.tick(expiryWheel.getCurrentTick()), 1L, 1L);
+
+        // Periodically evict expired cooldowns so the map doesn't grow with every player who ever used /tpa.
+        cooldownSweepTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> sweepCooldowns(), COOLDOWN_SWEEP_INTERVAL_TICKS, COOLDOWN_SWEEP_INTERVAL_TICKS);
+
+        // Keep the sessions up to date and drop requests when players leave.
+        getServer().getPluginManager().registerEvents(new PlayerConnectionListener(this), this);
+        getServer().getPluginManager().registerEvents(new AsyncTabCompleteListener(tabCompleter), this);
+        getServer().getPluginManager().registerEvents(new WarmupDamageListener(warmups), this);
+
+        // Share requests with the other servers behind the proxy.
+        if (getConfig().getBoolean("network.enabled", false)) {
+            openNetwork();
+        }
+
+        // Let other plugins query and resolve requests without going through commands.
+        getServer().getServicesManager().register(TeleportRequestService.class, new RequestService(this, teleportRequests), this, ServicePriority.Normal);
         
         getLogger().info("SimpleTPA has been enabled.");
     }
 
     private void loadConfigValues() {
-        // Get request timeout in seconds from config (default 120 seconds / 2 minutes).
-        int timeoutSeconds = getConfig().getInt("request-timeout", 120);
-        // Convert to ticks (20 ticks = 1 second).
-        requestTimeoutTicks = timeoutSeconds * 20L;
+        PluginSettings loaded = PluginSettings.load(getConfig());
+
+        // Rate limits and caps on pending requests, so a flood of requests stays bounded.
+        lifecycle.getSenderLimiter().configure(loaded.senderBurst, loaded.senderRefillTicks);
+        lifecycle.getTargetLimiter().configure(loaded.targetBurst, loaded.targetRefillTicks);
+
+        // Spread teleports and chunk loads over several ticks when many start at once.
+        teleportPipeline.setMaxStartsPerTick(loaded.maxTeleportsPerTick);
+
+        registerTierPermissions(loaded);
+
+        // Parse every message once so commands only fill in placeholders.
+        messages.load(getConfig().getConfigurationSection("messages"), getLogger());
+
+        // Swapped in one write, so no command sees some old values and some new ones.
+        settings = loaded;
+
+        scheduleMetricsFile();
+
+        getLogger().info("Config loaded: timeout=" + loaded.defaultTimeout.ticks() / 20 + "s, cooldown=" + loaded.defaultCooldownTicks / 20
+            + "s, cross-world=" + loaded.allowCrossWorld + ", preload-chunks=" + loaded.preloadDestinationChunks);
+    }
+
+    // Tier permissions can't be declared in plugin.yml, as the config names the tiers. Bukkit gives an
+    // undeclared permission to every op, so they are registered here to default to nobody instead.
+    private void registerTierPermissions(PluginSettings loaded) {
+        PluginManager pluginManager = getServer().getPluginManager();
+        for (String permission : loaded.tierPermissions()) {
+            if (pluginManager.getPermission(permission) == null) {
+                pluginManager.addPermission(new Permission(permission, PermissionDefault.FALSE));
+            }
+        }
+    }
 
-        // Get cooldown in seconds from config (default 10 seconds).
-        int cooldownSeconds = getConfig().getInt("request-cooldown", 10);
-        // Convert to milliseconds.
-        requestCooldownMillis = cooldownSeconds * 1000L;
+    // Periodically writes the metrics to a Prometheus text file, if one is configured.
+    private void scheduleMetricsFile() {
+        if (metricsTask != null) {
+            metricsTask.cancel();
+            metricsTask = null;
+        }
 
-        // Whether to allow teleporting to players in different dimensions.
-        allowCrossWorld = getConfig().getBoolean("allow-cross-world", false);
+        String fileName = getConfig().getString("metrics.prometheus-file", "");
+        if (fileName == null || fileName.isEmpty()) {
+            return;
+        }
 
-        getLogger().info("Config loaded: timeout=" + timeoutSeconds + "s, cooldown=" + cooldownSeconds + "s, cross-world=" + allowCrossWorld);
+        Path file = getDataFolder().toPath().resolve(fileName);
+        long intervalSeconds = Math.max(1, getConfig().getInt("metrics.prometheus-interval", 15));
+        metricsTask = Bukkit.getAsyncScheduler().runAtFixedRate(this, task -> {
+            try {
+                metrics.writePrometheusFile(file);
+            } catch (IOException e) {
+                getLogger().warning("Could not write metrics to " + file + ": " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
     }
 
     @Override
     public void onDisable() {
+        getServer().getServicesManager().unregisterAll(this);
+
         // Cancel all pending tasks.
-        expirationTasks.values().forEach(BukkitTask::cancel);
-        teleportRequests.clear();
-        expirationTasks.clear();
-        cooldowns.clear();
+        if (expiryTask != null) {
+            expiryTask.cancel();
+            expiryTask = null;
+        }
+        if (cooldownSweepTask != null) {
+            cooldownSweepTask.cancel();
+            cooldownSweepTask = null;
+        }
+        if (warmupTask != null) {
+            warmupTask.cancel();
+            warmupTask = null;
+        }
+        if (metricsTask != null) {
+            metricsTask.cancel();
+            metricsTask = null;
+        }
+        // Players are still online at this point, so the other servers can be told they're gone.
+        lifecycle.closeNetwork();
+        if (networkTask != null) {
+            networkTask.cancel();
+            networkTask = null;
+        }
+
+        // Save what is still pending before it is cleared below.
+        if (journal != null) {
+            journal.close(captureState());
+            journal = null;
+        }
+        awaitingRestore.clear();
+        if (auditLog != null) {
+            auditLog.close();
+            auditLog = null;
+        }
+        warmups.clear();
+        teleportPipeline.clear();
+        safeLocations.clear();
+        lifecycle.clear();
         
         getLogger().info("SimpleTPA has been disabled.");
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        long start = System.nanoTime();
+        try {
+            return dispatchCommand(sender, command, args);
+        } finally {
+            metrics.commandLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private boolean dispatchCommand(CommandSender sender, Command command, String[] args) {
+        if (command.getName().equalsIgnoreCase("simpletpa")) {
+            return handleAdminCommand(sender, args);
+        }
+        if (command.getName().equalsIgnoreCase("tpalog")) {
+            return handleAuditCommand(sender, args);
+        }
+
         if (!(sender instanceof Player)) {
-            sender.sendMessage(Component.text("Only players can use teleportation commands.").color(NamedTextColor.RED));
+            sender.sendMessage(messages.get(Message.ONLY_PLAYERS));
             return true;
         }
 
         Player player = (Player) sender;
 
+        // Pick up any display name change before it is shown to other players.
+        PlayerSessions.Session session = sessions.get(player.getUniqueId());
+        if (session != null) {
+            session.refreshDisplayName();
+        }
+
         if (command.getName().equalsIgnoreCase("tpa")) {
             return handleTpaCommand(player, args);
         } else if (command.getName().equalsIgnoreCase("tpaccept")) {
-            return handleTpacceptCommand(player, args);
+            long start = System.nanoTime();
+            try {
+                return handleTpacceptCommand(player, args);
+            } finally {
+                metrics.acceptLatency.record(System.nanoTime() - start);
+            }
         } else if (command.getName().equalsIgnoreCase("tpdeny")) {
             return handleTpdenyCommand(player, args);
+        } else if (command.getName().equalsIgnoreCase("tpahere")) {
+            return handleTpahereCommand(player, args);
         } else if (command.getName().equalsIgnoreCase("tpacancel")) {
             return handleTpacancelCommand(player, args);
         }
@@ -101,168 +314,339 @@ public final class SimpleTPA extends JavaPlugin {
 
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
+        long start = System.nanoTime();
+        try {
+            return completeCommand(sender, command, args);
+        } finally {
+            metrics.tabCompleteLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    private List<String> completeCommand(CommandSender sender, Command command, String[] args) {
+        if (command.getName().equalsIgnoreCase("simpletpa")) {
+            if (args.length == 1) {
+                String prefix = args[0].toLowerCase();
+                List<String> completions = new ArrayList<>();
+                for (String subcommand : ADMIN_SUBCOMMANDS) {
+                    if (subcommand.startsWith(prefix)) {
+                        completions.add(subcommand);
+                    }
+                }
+                return completions;
+            }
+            return Collections.emptyList();
+        }
+        if (command.getName().equalsIgnoreCase("tpalog")) {
+            return args.length == 1 ? tabCompleter.getNameIndex().complete(args[0].toLowerCase(), null) : Collections.emptyList();
+        }
+
         if (!(sender instanceof Player)) {
             return Collections.emptyList();
         }
 
         Player player = (Player) sender;
 
-        if (command.getName().equalsIgnoreCase("tpa") && args.length == 1) {
-            String partialName = args[0].toLowerCase();
-            return Bukkit.getOnlinePlayers().stream()
-                    .map(Player::getName)
-                    .filter(name -> name.toLowerCase().startsWith(partialName))
-                    .filter(name -> !name.equals(sender.getName()))
-                    .collect(Collectors.toList());
-        } else if (command.getName().equalsIgnoreCase("tpaccept") && args.length == 1) {
-            String partialName = args[0].toLowerCase();
-            UUID playerUUID = player.getUniqueId();
-            
-            return getPendingRequesters(playerUUID).stream()
-                    .map(uuid -> Bukkit.getPlayer(uuid))
-                    .filter(Objects::nonNull)
-                    .map(Player::getName)
-                    .filter(name -> name.toLowerCase().startsWith(partialName))
-                    .collect(Collectors.toList());
-        } else if (command.getName().equalsIgnoreCase("tpdeny") && args.length == 1) {
-            String partialName = args[0].toLowerCase();
-            UUID playerUUID = player.getUniqueId();
-            
-            return getPendingRequesters(playerUUID).stream()
-                    .map(uuid -> Bukkit.getPlayer(uuid))
-                    .filter(Objects::nonNull)
-                    .map(Player::getName)
-                    .filter(name -> name.toLowerCase().startsWith(partialName))
-                    .collect(Collectors.toList());
-        } else if (command.getName().equalsIgnoreCase("tpacancel") && args.length == 1) {
-            String partialName = args[0].toLowerCase();
-            UUID playerUUID = player.getUniqueId();
-
-            List<String> suggestions = new ArrayList<>();
-
-            if ("all".startsWith(partialName)) {
-                suggestions.add("all");
-            }
-
-            teleportRequests.keySet().stream()
-                    .filter(key -> key.startsWith(playerUUID.toString() + ":"))
-                    .forEach(requestKey -> {
-                        String[] parts = requestKey.split(":");
-                        if (parts.length == 2) {
-                            try {
-                                UUID targetUUID = UUID.fromString(parts[1]);
-                                Player target = Bukkit.getPlayer(targetUUID);
-                                if (target != null && target.isOnline()) {
-                                    String name = target.getName();
-                                    if (name.toLowerCase().startsWith(partialName)) {
-                                        suggestions.add(name);
-                                    }
-                                }
-                            } catch (IllegalArgumentException e) {
-                                // Invalid UUID, skip
-                            }
-                        }
-                    });
-
-            return suggestions;
+        if (args.length == 1) {
+            return tabCompleter.complete(player, command.getName().toLowerCase(), args[0]);
         }
 
         return Collections.emptyList();
     }
 
+    private boolean handleAdminCommand(CommandSender sender, String[] args) {
+        if (args.length >= 1 && args[0].equalsIgnoreCase("stats")) {
+            sendStats(sender);
+            return true;
+        }
+        if (args.length < 1 || !args[0].equalsIgnoreCase("reload")) {
+            sender.sendMessage(messages.get(Message.ADMIN_USAGE));
+            return true;
+        }
+
+        // Pending requests keep the deadlines they were created with.
+        reloadConfig();
+        loadConfigValues();
+        sender.sendMessage(messages.get(Message.RELOADED));
+        return true;
+    }
+
+    private void sendStats(CommandSender sender) {
+        sender.sendMessage(messages.get(Message.STATS_HEADER));
+        sender.sendMessage(messages.get(Message.STATS_REQUESTS,
+            count(metrics.requestsCreated.sum()), count(metrics.requestsAccepted.sum()), count(metrics.requestsDenied.sum()),
+            count(metrics.requestsCancelled.sum()), count(metrics.requestsExpired.sum()), count(metrics.getPendingRequests())));
+        sendLatency(sender, "Commands", metrics.commandLatency);
+        sendLatency(sender, "/tpaccept", metrics.acceptLatency);
+        sendLatency(sender, "Tab completion", metrics.tabCompleteLatency);
+        sendLatency(sender, "Teleports", metrics.teleportLatency);
+        sender.sendMessage(messages.get(Message.STATS_TELEPORT_FAILURES, Long.toString(metrics.teleportsFailed.sum())));
+    }
+
+    private void sendLatency(CommandSender sender, String name, LatencyHistogram histogram) {
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        sender.sendMessage(messages.get(Message.STATS_LATENCY, Component.text(name), count(snapshot.count()),
+            duration(snapshot.valueAt(0.5)), duration(snapshot.valueAt(0.99)), duration(snapshot.max())));
+    }
+
+    private static Component count(long value) {
+        return Component.text(Long.toString(value));
+    }
+
+    // A block coordinate, rounded down like the F3 screen.
+    private static Component coordinate(double value) {
+        return Component.text(Long.toString((long) Math.floor(value)));
+    }
+
+    private static Component duration(long nanos) {
+        return Component.text(PluginMetrics.formatNanos(nanos));
+    }
+
     private boolean handleTpaCommand(Player player, String[] args) {
         if (args.length < 1) {
-            player.sendMessage(Component.text("Usage: /tpa <player>").color(NamedTextColor.RED));
+            player.sendMessage(messages.get(Message.TPA_USAGE));
             return true;
         }
         
         // Check for cooldown
         UUID playerUUID = player.getUniqueId();
-        long currentTime = System.currentTimeMillis();
-        
-        if (cooldowns.containsKey(playerUUID)) {
-            long cooldownExpires = cooldowns.get(playerUUID);
-            if (currentTime < cooldownExpires) {
-                long remainingSeconds = (cooldownExpires - currentTime) / 1000 + 1;
-                player.sendMessage(Component.text("Please wait " + remainingSeconds + " seconds before sending another request.").color(NamedTextColor.RED));
-                return true;
-            }
+        int currentTick = currentTick();
+
+        int remainingTicks = cooldowns.remaining(playerUUID, currentTick);
+        if (remainingTicks > 0) {
+            int remainingSeconds = (remainingTicks + 19) / 20;
+            player.sendMessage(messages.get(Message.COOLDOWN, Integer.toString(remainingSeconds)));
+            return true;
         }
 
         Player target = Bukkit.getPlayer(args[0]);
         if (target == null || !target.isOnline()) {
-            player.sendMessage(Component.text("Player not found or is offline.").color(NamedTextColor.RED));
+            CrossServerNetwork.RemotePlayer remoteTarget = findRemotePlayer(args[0]);
+            if (remoteTarget != null) {
+                return sendRemoteRequest(player, remoteTarget, currentTick);
+            }
+            player.sendMessage(messages.get(Message.PLAYER_NOT_FOUND));
             return true;
         }
 
-        if (target.getUniqueId().equals(player.getUniqueId())) {
-            player.sendMessage(Component.text("You cannot teleport to yourself.").color(NamedTextColor.RED));
+        sendRequest(player, target, false, currentTick);
+        return true;
+    }
+
+    private boolean handleTpahereCommand(Player player, String[] args) {
+        if (args.length < 1) {
+            player.sendMessage(messages.get(Message.TPAHERE_USAGE));
             return true;
         }
 
-        if (!allowCrossWorld && !player.getWorld().equals(target.getWorld())) {
-            player.sendMessage(Component.text("You cannot teleport to a player in a different dimension.").color(NamedTextColor.RED));
+        if (args[0].equalsIgnoreCase("all") && player.hasPermission("simpletpa.tpahere.all")) {
+            return handleTpahereAll(player);
+        }
+
+        int currentTick = currentTick();
+        int remainingTicks = cooldowns.remaining(player.getUniqueId(), currentTick);
+        if (remainingTicks > 0) {
+            int remainingSeconds = (remainingTicks + 19) / 20;
+            player.sendMessage(messages.get(Message.COOLDOWN, Integer.toString(remainingSeconds)));
             return true;
         }
 
-        String requestKey = player.getUniqueId() + ":" + target.getUniqueId();
-        if (teleportRequests.containsKey(requestKey)) {
-            player.sendMessage(Component.text("You already have a pending request to this player.").color(NamedTextColor.RED));
+        // Players on other servers can't be asked here, as their server would have to send them.
+        Player target = Bukkit.getPlayer(args[0]);
+        if (target == null || !target.isOnline()) {
+            player.sendMessage(messages.get(Message.PLAYER_NOT_FOUND));
             return true;
         }
 
-        teleportRequests.put(requestKey, currentTime);
+        sendRequest(player, target, true, currentTick);
+        return true;
+    }
+
+    /**
+     * Sends a request to a player on this server. With {@code here} set, accepting it brings
+     * the target to the sender instead.
+     */
+    private void sendRequest(Player player, Player target, boolean here, int currentTick) {
+        if (target.getUniqueId().equals(player.getUniqueId())) {
+            player.sendMessage(messages.get(Message.CANNOT_TELEPORT_TO_SELF));
+            return;
+        }
 
-        cooldowns.put(playerUUID, currentTime + requestCooldownMillis);
+        // Whoever travels has to be allowed into the other player's world.
+        PluginSettings settings = this.settings;
+        if (here ? !settings.allowsTeleport(target.getWorld(), player.getWorld()) : !settings.allowsTeleport(player.getWorld(), target.getWorld())) {
+            player.sendMessage(messages.get(Message.DIFFERENT_DIMENSION));
+            return;
+        }
 
-        // Schedule task to expire the request after configured time.
-        BukkitTask task = Bukkit.getScheduler().runTaskLater(this, () -> {
-            if (teleportRequests.containsKey(requestKey)) {
-                teleportRequests.remove(requestKey);
-                expirationTasks.remove(requestKey);
-                
-                Component expiredMessage = Component.text("Your teleport request to ").color(NamedTextColor.RED)
-                    .append(target.displayName())
-                    .append(Component.text(" has expired.").color(NamedTextColor.RED));
-                player.sendMessage(expiredMessage);
-                
-                Component targetMessage = Component.text("Teleport request from ").color(NamedTextColor.RED)
-                    .append(player.displayName())
-                    .append(Component.text(" has expired.").color(NamedTextColor.RED));
-                target.sendMessage(targetMessage);
-            }
-        }, requestTimeoutTicks);
+        if (!callCreateEvent(player, target.getUniqueId(), target.getName(), target, here)
+            || !admitRequest(settings, player, target.getUniqueId(), target.displayName(), currentTick)) {
+            return;
+        }
+
+        TeleportRequest request = lifecycle.create(player.getUniqueId(), target.getUniqueId(), here);
+        if (request == null) {
+            player.sendMessage(messages.get(Message.ALREADY_PENDING));
+            return;
+        }
+        if (request.isResolved()) {
+            player.sendMessage(messages.get(Message.PLAYER_NOT_FOUND));
+            return;
+        }
 
-        // Store the task for cancellation if needed.
-        expirationTasks.put(requestKey, task);
+        PluginSettings.Timeout timeout = settings.timeoutFor(player);
+        lifecycle.start(request, settings.cooldownTicksFor(player), timeout, currentTick);
+        lifecycle.enforceInboxCap(target.getUniqueId(), settings.maxIncomingPerTarget);
+        deliverRequest(settings, player, target, request, timeout);
+    }
 
-        // Calculate timeout in minutes and seconds for display
-        int timeoutSeconds = (int)(requestTimeoutTicks / 20);
-        int minutes = timeoutSeconds / 60;
-        int seconds = timeoutSeconds % 60;
-        String timeoutDisplay = minutes > 0 ? minutes + " minute" + (minutes > 1 ? "s" : "") : "";
-        if (seconds > 0) {
-            if (!timeoutDisplay.isEmpty()) timeoutDisplay += " and ";
-            timeoutDisplay += seconds + " second" + (seconds > 1 ? "s" : "");
+    /**
+     * Creates a request for {@link TeleportRequestService#createRequest}: like the commands,
+     * but without the cooldown, rate limits or dimension check.
+     */
+    TeleportRequest createRequest(Player player, Player target, boolean here) {
+        if (player.getUniqueId().equals(target.getUniqueId())
+            || !callCreateEvent(player, target.getUniqueId(), target.getName(), target, here)) {
+            return null;
+        }
+
+        TeleportRequest request = lifecycle.create(player.getUniqueId(), target.getUniqueId(), here);
+        if (request == null || request.isResolved()) {
+            return null;
+        }
+
+        PluginSettings settings = this.settings;
+        PluginSettings.Timeout timeout = settings.timeoutFor(player);
+        lifecycle.schedule(request, timeout);
+        lifecycle.enforceInboxCap(target.getUniqueId(), settings.maxIncomingPerTarget);
+        deliverRequest(settings, player, target, request, timeout);
+        return request;
+    }
+
+    // Preloads the destination of a request that was just started and tells both players about it.
+    private void deliverRequest(PluginSettings settings, Player player, Player target, TeleportRequest request,
+                                PluginSettings.Timeout requestTimeout) {
+        // The inbox cap may already have dropped it.
+        if (request.isResolved()) {
+            return;
+        }
+
+        // Start loading the destination now so accepting doesn't wait on it.
+        if (settings.preloadDestinationChunks) {
+            if (request.isHere()) {
+                teleportPipeline.preload(request, player.getLocation());
+            } else {
+                runFor(target, () -> teleportPipeline.preload(request, target.getLocation()));
+            }
         }
 
         // Send messages
-        Component sentMessage = Component.empty()
-            .append(Component.text("Teleport request sent to ").color(NamedTextColor.GREEN))
-            .append(target.displayName())
-            .append(Component.text(".").color(NamedTextColor.GREEN));
-        player.sendMessage(sentMessage);
-        player.sendMessage(Component.text("This request will expire in " + timeoutDisplay + ".").color(NamedTextColor.YELLOW));
-        
-        Component receivedMessage = player.displayName()
-            .append(Component.text(" has requested to teleport to you.").color(NamedTextColor.GREEN));
-        target.sendMessage(receivedMessage);
-        Component acceptMessage = Component.empty()
-            .append(Component.text("Type /tpaccept ").color(NamedTextColor.YELLOW))
-            .append(player.displayName())
-            .append(Component.text(" to accept. This request will expire in " + timeoutDisplay + ".").color(NamedTextColor.YELLOW));
-        target.sendMessage(acceptMessage);
+        Component timeout = Component.text(requestTimeout.display());
+        player.sendMessage(messages.get(request.isHere() ? Message.HERE_REQUEST_SENT : Message.REQUEST_SENT, target.displayName()));
+        player.sendMessage(messages.get(Message.REQUEST_EXPIRES_IN, timeout));
+
+        sendMessage(target, messages.get(request.isHere() ? Message.HERE_REQUEST_RECEIVED : Message.REQUEST_RECEIVED, player.displayName()));
+        sendMessage(target, messages.get(Message.REQUEST_ACCEPT_HINT, player.displayName(), timeout));
+    }
 
+    /**
+     * Asks every other player on this server to teleport to the sender. Meant for staff, so
+     * the sender's cooldown and rate limit don't apply; the server-wide ceiling and each
+     * target's inbox cap still do.
+     */
+    private boolean handleTpahereAll(Player player) {
+        Location destination = player.getLocation();
+        PluginSettings settings = this.settings;
+        PluginSettings.Timeout requestTimeout = settings.timeoutFor(player);
+        Component timeout = Component.text(requestTimeout.display());
+        int sent = 0;
+        for (Player target : Bukkit.getOnlinePlayers()) {
+            if (target.getUniqueId().equals(player.getUniqueId())
+                || !settings.allowsTeleport(target.getWorld(), player.getWorld())) {
+                continue;
+            }
+            if (settings.maxPendingTotal > 0 && teleportRequests.size() >= settings.maxPendingTotal) {
+                metrics.requestsRejected.increment();
+                player.sendMessage(messages.get(Message.SERVER_REQUEST_LIMIT));
+                break;
+            }
+            if (!callCreateEvent(player, target.getUniqueId(), target.getName(), target, true)) {
+                continue;
+            }
+
+            TeleportRequest request = lifecycle.create(player.getUniqueId(), target.getUniqueId(), true);
+            if (request == null || request.isResolved()) {
+                continue;
+            }
+            lifecycle.schedule(request, requestTimeout);
+            lifecycle.enforceInboxCap(target.getUniqueId(), settings.maxIncomingPerTarget);
+            if (request.isResolved()) {
+                continue;
+            }
+
+            // Every request shares the one chunk ticket on the sender's chunk.
+            if (settings.preloadDestinationChunks) {
+                teleportPipeline.preload(request, destination);
+            }
+            sendMessage(target, messages.get(Message.HERE_REQUEST_RECEIVED, player.displayName()));
+            sendMessage(target, messages.get(Message.REQUEST_ACCEPT_HINT, player.displayName(), timeout));
+            sent++;
+        }
+
+        player.sendMessage(messages.get(Message.HERE_ALL_SENT, Integer.toString(sent)));
+        if (sent > 0) {
+            player.sendMessage(messages.get(Message.REQUEST_EXPIRES_IN, timeout));
+        }
+        return true;
+    }
+
+    // Asks listeners whether the request may be sent; true without building the event if nobody listens.
+    private boolean callCreateEvent(Player player, UUID targetUUID, String targetName, Player target, boolean here) {
+        return !hasListeners(TeleportRequestCreateEvent.getHandlerList())
+            || new TeleportRequestCreateEvent(player, targetUUID, targetName, target, here).callEvent();
+    }
+
+    private boolean callAcceptEvent(TeleportRequest request, Player player) {
+        return !hasListeners(TeleportRequestAcceptEvent.getHandlerList())
+            || new TeleportRequestAcceptEvent(request, player).callEvent();
+    }
+
+    private static boolean hasListeners(HandlerList handlers) {
+        return handlers.getRegisteredListeners().length > 0;
+    }
+
+    /**
+     * Applies the duplicate check, the server-wide ceiling and the rate limits. Tells the
+     * sender and returns false if the request is refused.
+     */
+    private boolean admitRequest(PluginSettings settings, Player player, UUID targetUUID, Component targetName, int currentTick) {
+        Message refusal = lifecycle.admit(player.getUniqueId(), targetUUID, settings.maxPendingTotal, currentTick);
+        if (refusal == null) {
+            return true;
+        }
+        player.sendMessage(refusal == Message.RATE_LIMITED_TARGET ? messages.get(refusal, targetName) : messages.get(refusal));
+        return false;
+    }
+
+    /**
+     * Sends a request to a player on another server. The dimension check doesn't apply, since
+     * the target's world isn't known here.
+     */
+    private boolean sendRemoteRequest(Player player, CrossServerNetwork.RemotePlayer target, int currentTick) {
+        // The target's server applies its own inbox cap when the request arrives.
+        PluginSettings settings = this.settings;
+        if (!callCreateEvent(player, target.uuid(), target.name(), null, false)
+            || !admitRequest(settings, player, target.uuid(), Component.text(target.name()), currentTick)) {
+            return true;
+        }
+
+        PluginSettings.Timeout timeout = settings.timeoutFor(player);
+        if (lifecycle.createRemote(player.getUniqueId(), player.getName(), target.uuid(), settings.cooldownTicksFor(player), timeout, currentTick) == null) {
+            player.sendMessage(messages.get(Message.ALREADY_PENDING));
+            return true;
+        }
+
+        player.sendMessage(messages.get(Message.REQUEST_SENT, Component.text(target.name())));
+        player.sendMessage(messages.get(Message.REQUEST_EXPIRES_IN, Component.text(timeout.display())));
         return true;
     }
 
@@ -271,148 +655,444 @@ public final class SimpleTPA extends JavaPlugin {
         List<UUID> pendingRequesters = getPendingRequesters(targetUUID);
         
         if (pendingRequesters.isEmpty()) {
-            player.sendMessage(Component.text("You don't have any pending teleport requests.").color(NamedTextColor.RED));
+            player.sendMessage(messages.get(Message.NO_PENDING_REQUESTS));
             return true;
         }
         
         // If no name specified, show a list of players who have sent requests
         if (args.length < 1) {
-            player.sendMessage(Component.text("Usage: /tpaccept <player>").color(NamedTextColor.RED));
-            player.sendMessage(Component.text("Pending requests from:").color(NamedTextColor.YELLOW));
+            player.sendMessage(messages.get(Message.TPACCEPT_USAGE));
+            player.sendMessage(messages.get(Message.PENDING_REQUESTS_FROM));
             
             for (UUID requesterUUID : pendingRequesters) {
-                Player requester = Bukkit.getPlayer(requesterUUID);
-                if (requester != null && requester.isOnline()) {
-                    Component listItem = Component.text(" - ").color(NamedTextColor.GOLD)
-                        .append(requester.displayName());
-                    player.sendMessage(listItem);
+                Component requesterName = displayNameOf(requesterUUID);
+                if (requesterName != null) {
+                    player.sendMessage(messages.get(Message.PENDING_REQUEST_ENTRY, requesterName));
                 }
             }
             return true;
         }
+
+        if (args[0].equalsIgnoreCase("all")) {
+            return acceptAll(player);
+        }
         
         // Find the player by name
         String requesterName = args[0];
         Player requester = Bukkit.getPlayer(requesterName);
         
         if (requester == null || !requester.isOnline()) {
-            player.sendMessage(Component.text("Player not found or is offline.").color(NamedTextColor.RED));
+            CrossServerNetwork.RemotePlayer remoteRequester = findRemotePlayer(requesterName);
+            if (remoteRequester != null) {
+                return acceptRemoteRequest(player, remoteRequester);
+            }
+            player.sendMessage(messages.get(Message.PLAYER_NOT_FOUND));
             return true;
         }
 
         UUID requesterUUID = requester.getUniqueId();
 
-        String requestKey = requesterUUID + ":" + targetUUID;
-        if (!teleportRequests.containsKey(requestKey)) {
-            Component noRequestMessage = Component.text("You don't have a pending request from ").color(NamedTextColor.RED)
-                .append(requester.displayName())
-                .append(Component.text(".").color(NamedTextColor.RED));
-            player.sendMessage(noRequestMessage);
+        TeleportRequest request = teleportRequests.get(requesterUUID, targetUUID);
+        if (request != null && !callAcceptEvent(request, player)) {
             return true;
         }
 
-        if (!allowCrossWorld && !player.getWorld().equals(requester.getWorld())) {
-            player.sendMessage(Component.text("You cannot accept a teleport request from a player in a different dimension.").color(NamedTextColor.RED));
-            teleportRequests.remove(requestKey);
-            cancelExpirationTask(requestKey);
+        // Claim the request first so it can't be accepted twice or expire mid-teleport.
+        if (request == null || !lifecycle.accept(request)) {
+            player.sendMessage(messages.get(Message.NO_REQUEST_FROM, requester.displayName()));
             return true;
         }
 
-        // Check if the requester is alive (not dead/on respawn screen)
-        if (requester.isDead()) {
-            Component deadMessage = Component.empty()
-                .append(Component.text("Cannot teleport ").color(NamedTextColor.RED))
-                .append(requester.displayName())
-                .append(Component.text(" - they are currently dead.").color(NamedTextColor.RED));
-            player.sendMessage(deadMessage);
+        acceptLocalRequest(player, requester, request.isHere());
+
+        return true;
+    }
+
+    /**
+     * Accepts every /tpa request the player has pending. The teleports go through the
+     * pipeline's per-tick limit, so a long list is spread over several ticks. The player can
+     * only go to one requester, and shouldn't leave while others are on their way to them, so
+     * a /tpahere request is only accepted if it is the only thing pending; otherwise those are
+     * left for the player to accept by name.
+     */
+    private boolean acceptAll(Player player) {
+        List<TeleportRequest> hereRequests = new ArrayList<>();
+        int accepted = 0;
+        for (TeleportRequest request : teleportRequests.getIncoming(player.getUniqueId())) {
+            if (request.isHere()) {
+                hereRequests.add(request);
+                continue;
+            }
+            if (acceptClaimed(player, request)) {
+                accepted++;
+            }
+        }
 
-            Component requesterMessage = Component.empty()
-                .append(player.displayName())
-                .append(Component.text(" tried to accept your teleport request but you were dead. Request cancelled.").color(NamedTextColor.RED));
-            requester.sendMessage(requesterMessage);
+        int skipped = hereRequests.size();
+        if (skipped == 1 && accepted == 0) {
+            skipped = 0;
+            if (acceptClaimed(player, hereRequests.get(0))) {
+                accepted++;
+            }
+        }
 
-            // Clean up the request
-            teleportRequests.remove(requestKey);
-            cancelExpirationTask(requestKey);
+        if (accepted == 0 && skipped == 0) {
+            player.sendMessage(messages.get(Message.NO_PENDING_REQUESTS));
             return true;
         }
+        if (accepted > 0) {
+            player.sendMessage(messages.get(Message.ACCEPTED_ALL, Integer.toString(accepted)));
+        }
+        if (skipped > 0) {
+            player.sendMessage(messages.get(Message.ACCEPTED_ALL_HERE_SKIPPED, Integer.toString(skipped)));
+        }
+        return true;
+    }
+
+    // Claims and starts one request for /tpaccept all; false if a listener refused it or it was already resolved.
+    private boolean acceptClaimed(Player player, TeleportRequest request) {
+        if (!callAcceptEvent(request, player) || !lifecycle.accept(request)) {
+            return false;
+        }
+        startAccepted(player, request);
+        return true;
+    }
 
-        // Teleport the requester to the target
-        requester.teleport(player.getLocation());
+    /**
+     * Accepts a request for {@link TeleportRequestService#acceptRequest}. Runs on the target's thread.
+     */
+    boolean acceptRequest(UUID requesterUUID, UUID targetUUID) {
+        Player player = sessions.getPlayer(targetUUID);
+        TeleportRequest request = teleportRequests.get(requesterUUID, targetUUID);
+        if (player == null || request == null || !callAcceptEvent(request, player) || !lifecycle.accept(request)) {
+            return false;
+        }
 
-        // Send messages
-        Component teleportMessage = Component.text("Teleported to ").color(NamedTextColor.GREEN)
-            .append(player.displayName())
-            .append(Component.text(".").color(NamedTextColor.GREEN));
-        requester.sendMessage(teleportMessage);
-        
-        Component notificationMessage = requester.displayName()
-            .append(Component.text(" has been teleported to you.").color(NamedTextColor.GREEN));
-        player.sendMessage(notificationMessage);
+        startAccepted(player, request);
+        return true;
+    }
+
+    // Teleports the requester of an accepted request. One on another server has already been sent for.
+    private void startAccepted(Player player, TeleportRequest request) {
+        Player requester = sessions.getPlayer(request.getRequester());
+        if (requester != null) {
+            acceptLocalRequest(player, requester, request.isHere());
+        }
+    }
 
-        // Clean up the request
-        teleportRequests.remove(requestKey);
-        cancelExpirationTask(requestKey);
+    // Runs on the accepting player's thread, after the request has been claimed.
+    private void acceptLocalRequest(Player player, Player requester, boolean here) {
+        if (here) {
+            // The accepting player goes to the requester, whose location belongs to their own region.
+            runFor(requester, () -> {
+                Location destination = requester.getLocation();
+                runFor(player, () -> completeAccept(requester, player, destination));
+            });
+            return;
+        }
+
+        // The requester's state belongs to their own region, so check it and teleport from there.
+        Location destination = player.getLocation();
+        runFor(requester, () -> completeAccept(player, requester, destination));
+    }
 
+    /**
+     * Accepts a request from a player on another server: their server sends them here, and
+     * they are teleported to the target when they join.
+     */
+    private boolean acceptRemoteRequest(Player player, CrossServerNetwork.RemotePlayer requester) {
+        TeleportRequest request = teleportRequests.get(requester.uuid(), player.getUniqueId());
+        if (request != null && !callAcceptEvent(request, player)) {
+            return true;
+        }
+        if (request == null || !lifecycle.accept(request)) {
+            player.sendMessage(messages.get(Message.NO_REQUEST_FROM, Component.text(requester.name())));
+            return true;
+        }
+
+        player.sendMessage(messages.get(Message.REMOTE_ACCEPTED, Component.text(requester.name())));
         return true;
     }
 
+    /**
+     * Teleports the traveller to the player, or starts their warmup. The traveller is the
+     * requester for /tpa and the player who accepted for /tpahere. Runs on the traveller's thread.
+     */
+    private void completeAccept(Player player, Player traveller, Location destination) {
+        PluginSettings settings = this.settings;
+        if (!settings.allowsTeleport(traveller.getWorld(), destination.getWorld())) {
+            sendMessage(player, messages.get(Message.ACCEPT_DIFFERENT_DIMENSION));
+            return;
+        }
+
+        // Check if the traveller is alive (not dead/on respawn screen)
+        if (traveller.isDead()) {
+            sendMessage(player, messages.get(Message.REQUESTER_DEAD, traveller.displayName()));
+            traveller.sendMessage(messages.get(Message.REQUESTER_DEAD_NOTICE, player.displayName()));
+            return;
+        }
+
+        long warmupTicks = settings.warmupTicks;
+        if (warmupTicks > 0) {
+            // Load the destination while the traveller waits. A warmup is short, so this is done whatever preload-destination-chunks says.
+            WarmupTracker.Warmup warmup = warmups.start(traveller, player, destination, expiryWheel.getCurrentTick() + warmupTicks);
+            teleportPipeline.preload(warmup, destination);
+
+            String seconds = Long.toString(warmupTicks / 20);
+            traveller.sendMessage(messages.get(Message.WARMUP_STARTED, seconds));
+            sendMessage(player, messages.get(Message.WARMUP_STARTED_TARGET, traveller.displayName(), Component.text(seconds)));
+            return;
+        }
+
+        teleportAndNotify(settings, player, traveller, destination);
+    }
+
+    private void finishWarmup(WarmupTracker.Warmup warmup, WarmupTracker.Outcome outcome) {
+        teleportPipeline.release(warmup);
+
+        Player requester = warmup.getRequester();
+        Player target = warmup.getTarget();
+        switch (outcome) {
+            case COMPLETED -> teleportAndNotify(settings, target, requester, warmup.getDestination());
+            case MOVED, DAMAGED -> {
+                metrics.warmupsCancelled.increment();
+                sendMessage(requester, messages.get(outcome == WarmupTracker.Outcome.MOVED
+                    ? Message.WARMUP_CANCELLED_MOVED : Message.WARMUP_CANCELLED_DAMAGED));
+                sendMessage(target, messages.get(Message.WARMUP_CANCELLED_NOTICE, requester.displayName()));
+            }
+            case LEFT, REPLACED -> {
+                metrics.warmupsCancelled.increment();
+                sendMessage(target, messages.get(Message.WARMUP_CANCELLED_NOTICE, requester.displayName()));
+            }
+            case TARGET_LEFT -> {
+                metrics.warmupsCancelled.increment();
+                sendMessage(requester, messages.get(Message.WARMUP_CANCELLED_TARGET_LEFT, target.displayName()));
+            }
+        }
+    }
+
+    // Runs on the traveller's thread. The timing includes the safety search and any wait for the pipeline's per-tick limit.
+    private void teleportAndNotify(PluginSettings settings, Player player, Player traveller, Location destination) {
+        long start = System.nanoTime();
+        if (!settings.safeDestination) {
+            startTeleport(player, traveller, destination, start);
+            return;
+        }
+
+        // The player may be falling, flying or standing in something harmful, so look for
+        // somewhere safe nearby first. The search reads chunk snapshots off the tick thread.
+        safeLocations.resolve(destination).whenComplete((safe, throwable) -> runFor(traveller, () -> {
+            if (throwable != null || safe == null) {
+                metrics.teleportsFailed.increment();
+                audit(AuditLog.Outcome.NO_SAFE_SPOT, traveller, player, destination);
+                if (throwable != null) {
+                    getLogger().warning("Finding a safe spot near " + player.getName() + " failed: " + throwable.getMessage());
+                }
+
+                sendMessage(traveller, messages.get(Message.NO_SAFE_DESTINATION, player.displayName()));
+                sendMessage(player, messages.get(Message.NO_SAFE_DESTINATION_NOTICE, traveller.displayName()));
+                return;
+            }
+            startTeleport(player, traveller, safe, start);
+        }));
+    }
+
+    private void startTeleport(Player player, Player traveller, Location destination, long start) {
+        if (hasListeners(PreTpaTeleportEvent.getHandlerList())) {
+            PreTpaTeleportEvent event = new PreTpaTeleportEvent(traveller, player, destination);
+            if (!event.callEvent()) {
+                audit(AuditLog.Outcome.BLOCKED, traveller, player, destination);
+                return;
+            }
+            destination = event.getDestination();
+        }
+
+        // Teleport the traveller to the player
+        Location target = destination;
+        teleportPipeline.teleport(traveller, target).whenComplete((success, throwable) -> {
+            metrics.teleportLatency.record(System.nanoTime() - start);
+            if (throwable != null || !Boolean.TRUE.equals(success)) {
+                metrics.teleportsFailed.increment();
+                audit(AuditLog.Outcome.FAILED, traveller, player, target);
+                if (throwable != null) {
+                    getLogger().warning("Teleport of " + traveller.getName() + " to " + player.getName() + " failed: " + throwable.getMessage());
+                }
+
+                sendMessage(traveller, messages.get(Message.TELEPORT_FAILED, player.displayName()));
+                sendMessage(player, messages.get(Message.TELEPORT_FAILED_TO_YOU, traveller.displayName()));
+                return;
+            }
+
+            audit(AuditLog.Outcome.TELEPORTED, traveller, player, target);
+
+            // Send messages
+            sendMessage(traveller, messages.get(Message.TELEPORTED, player.displayName()));
+            sendMessage(player, messages.get(Message.TELEPORTED_TO_YOU, traveller.displayName()));
+        });
+    }
+
+    private void audit(AuditLog.Outcome outcome, Player traveller, Player player, Location destination) {
+        if (auditLog != null) {
+            auditLog.record(outcome, traveller.getUniqueId(), traveller.getName(), player.getUniqueId(), player.getName(),
+                destination.getWorld().getName(), destination.getX(), destination.getY(), destination.getZ());
+        }
+    }
+
+    /**
+     * Shows the most recent teleports to or from a player. The files are searched on an async
+     * thread, so a lookup never holds up the server however large the log has grown.
+     */
+    private boolean handleAuditCommand(CommandSender sender, String[] args) {
+        if (args.length < 1) {
+            sender.sendMessage(messages.get(Message.TPALOG_USAGE));
+            return true;
+        }
+        AuditLog log = auditLog;
+        if (log == null) {
+            sender.sendMessage(messages.get(Message.AUDIT_LOG_DISABLED));
+            return true;
+        }
+
+        // Match on the UUID where it is known, so renamed players keep their history.
+        UUID uuid = null;
+        String name = args[0];
+        Player online = Bukkit.getPlayerExact(name);
+        OfflinePlayer cached = online == null ? Bukkit.getOfflinePlayerIfCached(name) : null;
+        if (online != null) {
+            uuid = online.getUniqueId();
+            name = online.getName();
+        } else if (cached != null) {
+            uuid = cached.getUniqueId();
+            name = cached.getName() != null ? cached.getName() : name;
+        }
+
+        UUID lookupUUID = uuid;
+        String lookupName = name;
+        Bukkit.getAsyncScheduler().runNow(this, task -> {
+            List<AuditLog.Entry> entries;
+            try {
+                entries = log.search(lookupUUID, lookupName, AUDIT_LOOKUP_LIMIT);
+            } catch (IOException e) {
+                getLogger().warning("Could not read the audit log: " + e.getMessage());
+                reply(sender, messages.get(Message.AUDIT_LOG_FAILED));
+                return;
+            }
+
+            if (entries.isEmpty()) {
+                reply(sender, messages.get(Message.AUDIT_LOG_EMPTY, lookupName));
+                return;
+            }
+            reply(sender, messages.get(Message.AUDIT_LOG_HEADER, Component.text(lookupName), count(entries.size())));
+            for (AuditLog.Entry entry : entries) {
+                reply(sender, messages.get(Message.AUDIT_LOG_ENTRY,
+                    Component.text(AUDIT_TIME_FORMAT.format(Instant.ofEpochMilli(entry.time()))),
+                    Component.text(entry.travellerName()), Component.text(entry.playerName()), Component.text(entry.world()),
+                    coordinate(entry.x()), coordinate(entry.y()), coordinate(entry.z()),
+                    Component.text(entry.outcome().name().toLowerCase().replace('_', ' '))));
+            }
+        });
+        return true;
+    }
+
+    private void reply(CommandSender sender, Component message) {
+        if (sender instanceof Player player) {
+            sendMessage(player, message);
+        } else {
+            sender.sendMessage(message);
+        }
+    }
+
     private boolean handleTpdenyCommand(Player player, String[] args) {
         UUID targetUUID = player.getUniqueId();
         List<UUID> pendingRequesters = getPendingRequesters(targetUUID);
 
         if (pendingRequesters.isEmpty()) {
-            player.sendMessage(Component.text("You don't have any pending teleport requests.").color(NamedTextColor.RED));
+            player.sendMessage(messages.get(Message.NO_PENDING_REQUESTS));
             return true;
         }
 
         if (args.length < 1) {
-            player.sendMessage(Component.text("Usage: /tpdeny <player>").color(NamedTextColor.RED));
-            player.sendMessage(Component.text("Pending requests from:").color(NamedTextColor.YELLOW));
+            player.sendMessage(messages.get(Message.TPDENY_USAGE));
+            player.sendMessage(messages.get(Message.PENDING_REQUESTS_FROM));
 
             for (UUID requesterUUID : pendingRequesters) {
-                Player requester = Bukkit.getPlayer(requesterUUID);
-                if (requester != null && requester.isOnline()) {
-                    Component listItem = Component.text(" - ").color(NamedTextColor.GOLD)
-                        .append(requester.displayName());
-                    player.sendMessage(listItem);
+                Component requesterName = displayNameOf(requesterUUID);
+                if (requesterName != null) {
+                    player.sendMessage(messages.get(Message.PENDING_REQUEST_ENTRY, requesterName));
                 }
             }
             return true;
         }
 
+        if (args[0].equalsIgnoreCase("all")) {
+            return denyAll(player);
+        }
+
         String requesterName = args[0];
         Player requester = Bukkit.getPlayer(requesterName);
 
         if (requester == null || !requester.isOnline()) {
-            player.sendMessage(Component.text("Player not found or is offline.").color(NamedTextColor.RED));
+            CrossServerNetwork.RemotePlayer remoteRequester = findRemotePlayer(requesterName);
+            if (remoteRequester != null) {
+                return denyRemoteRequest(player, remoteRequester);
+            }
+            player.sendMessage(messages.get(Message.PLAYER_NOT_FOUND));
             return true;
         }
 
         UUID requesterUUID = requester.getUniqueId();
-        String requestKey = requesterUUID + ":" + targetUUID;
 
-        if (!teleportRequests.containsKey(requestKey)) {
-            Component noRequestMessage = Component.text("You don't have a pending request from ").color(NamedTextColor.RED)
-                .append(requester.displayName())
-                .append(Component.text(".").color(NamedTextColor.RED));
-            player.sendMessage(noRequestMessage);
+        if (lifecycle.deny(requesterUUID, targetUUID) == null) {
+            player.sendMessage(messages.get(Message.NO_REQUEST_FROM, requester.displayName()));
             return true;
         }
 
-        Component deniedMessage = player.displayName()
-            .append(Component.text(" has denied your teleport request.").color(NamedTextColor.RED));
-        requester.sendMessage(deniedMessage);
+        sendMessage(requester, messages.get(Message.DENIED, player.displayName()));
+        player.sendMessage(messages.get(Message.DENIED_CONFIRM, requester.displayName()));
+
+        return true;
+    }
+
+    private boolean denyAll(Player player) {
+        int denied = 0;
+        for (TeleportRequest request : teleportRequests.getIncoming(player.getUniqueId())) {
+            if (!lifecycle.deny(request)) {
+                continue;
+            }
+            denied++;
+
+            Player requester = sessions.getPlayer(request.getRequester());
+            if (requester != null) {
+                sendMessage(requester, messages.get(Message.DENIED, player.displayName()));
+            }
+        }
+
+        player.sendMessage(messages.get(Message.DENIED_ALL, Integer.toString(denied)));
+        return true;
+    }
+
+    /**
+     * Denies a request for {@link TeleportRequestService#denyRequest}.
+     */
+    boolean denyRequest(UUID requesterUUID, UUID targetUUID) {
+        if (lifecycle.deny(requesterUUID, targetUUID) == null) {
+            return false;
+        }
 
-        Component confirmMessage = Component.empty()
-            .append(Component.text("You have denied ").color(NamedTextColor.YELLOW))
-            .append(requester.displayName())
-            .append(Component.text("'s teleport request.").color(NamedTextColor.YELLOW));
-        player.sendMessage(confirmMessage);
+        Player requester = sessions.getPlayer(requesterUUID);
+        if (requester != null) {
+            sendMessage(requester, messages.get(Message.DENIED, nameComponent(targetUUID)));
+        }
+        return true;
+    }
 
-        teleportRequests.remove(requestKey);
-        cancelExpirationTask(requestKey);
+    private boolean denyRemoteRequest(Player player, CrossServerNetwork.RemotePlayer requester) {
+        if (lifecycle.deny(requester.uuid(), player.getUniqueId()) == null) {
+            player.sendMessage(messages.get(Message.NO_REQUEST_FROM, Component.text(requester.name())));
+            return true;
+        }
 
+        player.sendMessage(messages.get(Message.DENIED_CONFIRM, Component.text(requester.name())));
         return true;
     }
 
@@ -420,43 +1100,36 @@ public final class SimpleTPA extends JavaPlugin {
         UUID playerUUID = player.getUniqueId();
 
         // Get all requests sent by this player
-        List<String> playerRequests = teleportRequests.keySet().stream()
-                .filter(key -> key.startsWith(playerUUID.toString() + ":"))
-                .collect(Collectors.toList());
+        List<TeleportRequest> playerRequests = new ArrayList<>(teleportRequests.getOutgoing(playerUUID));
 
         if (playerRequests.isEmpty()) {
-            player.sendMessage(Component.text("You don't have any pending teleport requests.").color(NamedTextColor.RED));
+            player.sendMessage(messages.get(Message.NO_PENDING_REQUESTS));
             return true;
         }
 
         // If no target specified, show list of cancelable requests or cancel if only one.
         if (args.length < 1) {
             if (playerRequests.size() == 1) {
-                String requestKey = playerRequests.get(0);
-                String[] parts = requestKey.split(":");
-                Player target = Bukkit.getPlayer(UUID.fromString(parts[1]));
-                
-                player.sendMessage(Component.text("You have cancelled your teleport request.").color(NamedTextColor.YELLOW));
-                if (target != null && target.isOnline()) {
-                    Component cancelMessage = player.displayName()
-                        .append(Component.text(" has cancelled their teleport request.").color(NamedTextColor.YELLOW));
-                    target.sendMessage(cancelMessage);
+                TeleportRequest request = playerRequests.get(0);
+                if (!lifecycle.cancel(request)) {
+                    player.sendMessage(messages.get(Message.NO_PENDING_REQUESTS));
+                    return true;
                 }
+                Player target = sessions.getPlayer(request.getTarget());
 
-                teleportRequests.remove(requestKey);
-                cancelExpirationTask(requestKey);
+                player.sendMessage(messages.get(Message.CANCELLED));
+                if (target != null) {
+                    sendMessage(target, messages.get(Message.CANCELLED_NOTICE, player.displayName()));
+                }
                 return true;
             } else {
-                player.sendMessage(Component.text("Usage: /tpacancel <player> or /tpacancel all").color(NamedTextColor.RED));
-                player.sendMessage(Component.text("You can cancel the following pending requests:").color(NamedTextColor.YELLOW));
-
-                for (String requestKey : playerRequests) {
-                    String[] parts = requestKey.split(":");
-                    Player target = Bukkit.getPlayer(UUID.fromString(parts[1]));
-                    if (target != null && target.isOnline()) {
-                        Component listItem = Component.text(" - ").color(NamedTextColor.GOLD)
-                            .append(target.displayName());
-                        player.sendMessage(listItem);
+                player.sendMessage(messages.get(Message.TPACANCEL_USAGE));
+                player.sendMessage(messages.get(Message.CANCELLABLE_REQUESTS));
+
+                for (TeleportRequest request : playerRequests) {
+                    Component targetName = displayNameOf(request.getTarget());
+                    if (targetName != null) {
+                        player.sendMessage(messages.get(Message.PENDING_REQUEST_ENTRY, targetName));
                     }
                 }
                 return true;
@@ -465,21 +1138,18 @@ public final class SimpleTPA extends JavaPlugin {
 
         // Handle "all" argument
         if (args[0].equalsIgnoreCase("all")) {
-            for (String requestKey : playerRequests) {
-                String[] parts = requestKey.split(":");
-                Player target = Bukkit.getPlayer(UUID.fromString(parts[1]));
-
-                if (target != null && target.isOnline()) {
-                    Component cancelMessage = player.displayName()
-                        .append(Component.text(" has cancelled their teleport request.").color(NamedTextColor.YELLOW));
-                    target.sendMessage(cancelMessage);
+            for (TeleportRequest request : playerRequests) {
+                if (!lifecycle.cancel(request)) {
+                    continue;
                 }
+                Player target = sessions.getPlayer(request.getTarget());
 
-                teleportRequests.remove(requestKey);
-                cancelExpirationTask(requestKey);
+                if (target != null) {
+                    sendMessage(target, messages.get(Message.CANCELLED_NOTICE, player.displayName()));
+                }
             }
 
-            player.sendMessage(Component.text("You have cancelled all your teleport requests.").color(NamedTextColor.YELLOW));
+            player.sendMessage(messages.get(Message.CANCELLED_ALL));
             return true;
         }
 
@@ -488,61 +1158,383 @@ public final class SimpleTPA extends JavaPlugin {
         Player target = Bukkit.getPlayer(targetName);
 
         if (target == null || !target.isOnline()) {
-            player.sendMessage(Component.text("Player not found or is offline.").color(NamedTextColor.RED));
+            CrossServerNetwork.RemotePlayer remoteTarget = findRemotePlayer(targetName);
+            if (remoteTarget != null) {
+                return cancelRemoteRequest(player, remoteTarget);
+            }
+            player.sendMessage(messages.get(Message.PLAYER_NOT_FOUND));
             return true;
         }
 
         UUID targetUUID = target.getUniqueId();
-        String requestKey = playerUUID + ":" + targetUUID;
 
-        if (!teleportRequests.containsKey(requestKey)) {
-            Component noRequestMessage = Component.text("You don't have a pending request to ").color(NamedTextColor.RED)
-                .append(target.displayName())
-                .append(Component.text(".").color(NamedTextColor.RED));
-            player.sendMessage(noRequestMessage);
+        if (lifecycle.cancel(playerUUID, targetUUID) == null) {
+            player.sendMessage(messages.get(Message.NO_REQUEST_TO, target.displayName()));
             return true;
         }
 
-        teleportRequests.remove(requestKey);
-        cancelExpirationTask(requestKey);
+        player.sendMessage(messages.get(Message.CANCELLED_TO, target.displayName()));
+        sendMessage(target, messages.get(Message.CANCELLED_NOTICE, player.displayName()));
+
+        return true;
+    }
+
+    /**
+     * Cancels a request for {@link TeleportRequestService#cancelRequest}.
+     */
+    boolean cancelRequest(UUID requesterUUID, UUID targetUUID) {
+        if (lifecycle.cancel(requesterUUID, targetUUID) == null) {
+            return false;
+        }
 
-        Component cancelledMessage = Component.empty()
-            .append(Component.text("You have cancelled your teleport request to ").color(NamedTextColor.YELLOW))
-            .append(target.displayName())
-            .append(Component.text(".").color(NamedTextColor.YELLOW));
-        player.sendMessage(cancelledMessage);
+        Player target = sessions.getPlayer(targetUUID);
+        if (target != null) {
+            sendMessage(target, messages.get(Message.CANCELLED_NOTICE, nameComponent(requesterUUID)));
+        }
+        return true;
+    }
 
-        Component targetMessage = player.displayName()
-            .append(Component.text(" has cancelled their teleport request.").color(NamedTextColor.YELLOW));
-        target.sendMessage(targetMessage);
+    private boolean cancelRemoteRequest(Player player, CrossServerNetwork.RemotePlayer target) {
+        if (lifecycle.cancel(player.getUniqueId(), target.uuid()) == null) {
+            player.sendMessage(messages.get(Message.NO_REQUEST_TO, Component.text(target.name())));
+            return true;
+        }
 
+        player.sendMessage(messages.get(Message.CANCELLED_TO, Component.text(target.name())));
         return true;
     }
 
     private List<UUID> getPendingRequesters(UUID playerUUID) {
-        List<UUID> requesters = new ArrayList<>();
-
-        // Look through all requests to find ones targeting this player
-        for (String requestKey : teleportRequests.keySet()) {
-            String[] parts = requestKey.split(":");
-            if (parts.length == 2 && parts[1].equals(playerUUID.toString())) {
-                // This request is for the target player
-                try {
-                    UUID requesterUUID = UUID.fromString(parts[0]);
-                    requesters.add(requesterUUID);
-                } catch (IllegalArgumentException e) {
-                    // Invalid UUID, skip
+        return teleportRequests.getRequesters(playerUUID);
+    }
+
+    private void openAuditLog() {
+        AuditLog opened = new AuditLog(getDataFolder().toPath().resolve("audit"),
+            Math.max(1, getConfig().getInt("audit-log.max-file-size", 16)) * 1024L * 1024L,
+            getConfig().getBoolean("audit-log.compress", true), getConfig().getInt("audit-log.retention-days", 90), getLogger());
+        try {
+            opened.open();
+        } catch (IOException e) {
+            getLogger().warning("Could not open the audit log, so teleports won't be recorded: " + e.getMessage());
+            return;
+        }
+        auditLog = opened;
+    }
+
+    private void openJournal() {
+        RequestJournal opened = new RequestJournal(getDataFolder().toPath().resolve("requests.journal"), getLogger());
+        RequestJournal.State state;
+        try {
+            state = opened.open();
+        } catch (IOException e) {
+            getLogger().warning("Could not open the request journal, so requests won't be kept across restarts: " + e.getMessage());
+            return;
+        }
+        journal = opened;
+
+        // Deadlines are wall-clock times, so whatever time the server was down has already been used up.
+        long now = System.currentTimeMillis();
+        int currentTick = currentTick();
+        int restored = 0;
+        for (RequestJournal.PendingRequest pending : state.requests()) {
+            // Requests only stay pending while both players are online, so the rest wait for them to rejoin.
+            if (sessions.get(pending.requester()) == null || sessions.get(pending.target()) == null) {
+                awaitingRestore.add(pending);
+            } else if (restoreRequest(pending, now)) {
+                restored++;
+            }
+        }
+        state.cooldowns().forEach((player, expiresAt) ->
+            cooldowns.start(player, currentTick, (int) RequestLifecycle.millisToTicks(expiresAt - now)));
+
+        getLogger().info("Restored " + restored + " pending requests and " + state.cooldowns().size() + " cooldowns from the journal; "
+            + awaitingRestore.size() + " more are waiting for their players to rejoin.");
+    }
+
+    // Puts a journaled request back in the store. It is already in the journal, so nothing new is recorded.
+    private boolean restoreRequest(RequestJournal.PendingRequest pending, long now) {
+        return lifecycle.restore(pending.requester(), pending.target(), pending.createdAt(), pending.here(),
+            RequestLifecycle.millisToTicks(pending.expiresAt() - now));
+    }
+
+    // Restores journaled requests involving a player who has just joined, if the other player is online too.
+    private void restoreAwaiting(UUID playerUUID) {
+        if (awaitingRestore.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (RequestJournal.PendingRequest pending : awaitingRestore) {
+            if (pending.expiresAt() <= now) {
+                awaitingRestore.remove(pending);
+            } else if ((pending.requester().equals(playerUUID) || pending.target().equals(playerUUID))
+                && sessions.get(pending.requester()) != null && sessions.get(pending.target()) != null
+                && awaitingRestore.remove(pending)) {
+                restoreRequest(pending, now);
+            }
+        }
+    }
+
+    // Snapshot of everything still pending, with deadlines converted to wall-clock times.
+    private RequestJournal.State captureState() {
+        long now = System.currentTimeMillis();
+        long currentTick = expiryWheel.getCurrentTick();
+
+        List<RequestJournal.PendingRequest> pending = new ArrayList<>();
+        for (TeleportRequest request : teleportRequests.getAll()) {
+            long remainingTicks = request.getExpiresAtTick() - currentTick;
+            if (request.getWheelSlot() < 0 || remainingTicks <= 0) {
+                continue;
+            }
+            pending.add(new RequestJournal.PendingRequest(request.getRequester(), request.getTarget(), request.getCreatedAt(),
+                now + remainingTicks * RequestLifecycle.MILLIS_PER_TICK, request.isHere()));
+        }
+        for (RequestJournal.PendingRequest waiting : awaitingRestore) {
+            if (waiting.expiresAt() > now) {
+                pending.add(waiting);
+            }
+        }
+
+        Map<UUID, Long> cooldownDeadlines = new HashMap<>();
+        cooldowns.forEachActive((int) currentTick, (player, remainingTicks) ->
+            cooldownDeadlines.put(player, now + remainingTicks * RequestLifecycle.MILLIS_PER_TICK));
+
+        return new RequestJournal.State(pending, cooldownDeadlines);
+    }
+
+    void handlePlayerJoin(Player player) {
+        UUID arrivalTarget = lifecycle.join(player);
+        restoreAwaiting(player.getUniqueId());
+
+        // Finish a request that was accepted on this server while the player was on another.
+        Player target = arrivalTarget != null ? sessions.getPlayer(arrivalTarget) : null;
+        if (target != null) {
+            runFor(target, () -> {
+                Location destination = target.getLocation();
+                runFor(player, () -> teleportAndNotify(settings, target, player, destination));
+            });
+        }
+    }
+
+    /**
+     * Removes every request sent by or to a player who is leaving and tells the other party.
+     */
+    void handlePlayerLeave(Player player) {
+        // Only a quit that ends the player's current session counts; their requests stay with a newer login.
+        List<TeleportRequest> removed = lifecycle.leave(player);
+        if (removed == null) {
+            return;
+        }
+
+        UUID playerUUID = player.getUniqueId();
+        warmups.cancel(playerUUID, WarmupTracker.Outcome.LEFT);
+        warmups.cancelTo(playerUUID, WarmupTracker.Outcome.TARGET_LEFT);
+
+        for (TeleportRequest request : removed) {
+            boolean outgoing = request.getRequester().equals(playerUUID);
+            Player other = sessions.getPlayer(outgoing ? request.getTarget() : request.getRequester());
+            if (other == null) {
+                continue;
+            }
+
+            // If the leaving player sent the request, the other player received it.
+            sendMessage(other, messages.get(outgoing ? Message.PLAYER_LEFT_RECEIVED : Message.PLAYER_LEFT_SENT, player.displayName()));
+        }
+    }
+
+    private void openNetwork() {
+        String serverName = getConfig().getString("network.server-name", "");
+        if (serverName == null || serverName.isEmpty()) {
+            getLogger().warning("network.enabled is set but network.server-name is empty, so cross-server requests are disabled.");
+            return;
+        }
+
+        CrossServerNetwork network = new CrossServerNetwork(serverName, new PluginMessageTransport(this),
+            (origin, message) -> lifecycle.receive(origin, message, settings.maxIncomingPerTarget), getLogger());
+        lifecycle.openNetwork(network);
+
+        // Everything queued during a tick goes out together at the end of it.
+        networkTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(this, task -> network.flush(), 1L, 1L);
+    }
+
+    // Tells this server's player about a request another server resolved.
+    private void handleRemoteResolution(String origin, NetworkMessage.Type type, TeleportRequest request) {
+        Player requester = sessions.getPlayer(request.getRequester());
+        Player target = sessions.getPlayer(request.getTarget());
+        switch (type) {
+            case REQUEST_ACCEPT -> {
+                if (requester == null) {
+                    return;
+                }
+                sendMessage(requester, messages.get(Message.REMOTE_CONNECTING, nameComponent(request.getTarget()), Component.text(origin)));
+                CrossServerNetwork network = lifecycle.getNetwork();
+                if (network != null) {
+                    runFor(requester, () -> network.getTransport().connect(requester, origin));
+                }
+            }
+            case REQUEST_DENY -> {
+                if (requester != null) {
+                    sendMessage(requester, messages.get(Message.DENIED, nameComponent(request.getTarget())));
+                }
+            }
+            case REQUEST_CANCEL -> {
+                if (target != null) {
+                    sendMessage(target, messages.get(Message.CANCELLED_NOTICE, nameComponent(request.getRequester())));
                 }
             }
+            case REQUEST_DROPPED -> {
+                if (requester != null) {
+                    sendMessage(requester, messages.get(Message.REQUEST_EVICTED, nameComponent(request.getTarget())));
+                }
+            }
+            case REQUEST_LEFT -> {
+                if (requester != null) {
+                    sendMessage(requester, messages.get(Message.PLAYER_LEFT_SENT, nameComponent(request.getTarget())));
+                } else if (target != null) {
+                    sendMessage(target, messages.get(Message.PLAYER_LEFT_RECEIVED, nameComponent(request.getRequester())));
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    // Preloads where the requester will arrive and tells the target about a request from another server.
+    private void receiveRemoteRequest(TeleportRequest request, String requesterName, long expiresAt) {
+        Player target = sessions.getPlayer(request.getTarget());
+        if (target == null) {
+            return;
+        }
+
+        // The requester will arrive at wherever the target is, so start loading it now.
+        if (settings.preloadDestinationChunks) {
+            runFor(target, () -> teleportPipeline.preload(request, target.getLocation()));
+        }
+
+        Component name = Component.text(requesterName);
+        sendMessage(target, messages.get(Message.REQUEST_RECEIVED, name));
+        long remainingMillis = expiresAt - System.currentTimeMillis();
+        String timeout = PluginSettings.formatDuration((int) Math.max(1, remainingMillis / 1000));
+        sendMessage(target, messages.get(Message.REQUEST_ACCEPT_HINT, name, Component.text(timeout)));
+    }
+
+    private CrossServerNetwork.RemotePlayer findRemotePlayer(String name) {
+        CrossServerNetwork network = lifecycle.getNetwork();
+        return network != null ? network.findPlayer(name) : null;
+    }
+
+    /**
+     * Returns the display name of a player on this server, the plain name of one on another
+     * server, or null if the player isn't online anywhere we know of.
+     */
+    private Component displayNameOf(UUID uuid) {
+        PlayerSessions.Session session = sessions.get(uuid);
+        if (session != null) {
+            return session.getDisplayName();
+        }
+        CrossServerNetwork network = lifecycle.getNetwork();
+        CrossServerNetwork.RemotePlayer remote = network != null ? network.getPlayer(uuid) : null;
+        return remote != null ? Component.text(remote.name()) : null;
+    }
+
+    // Like displayNameOf, but never null, for messages about a player who may have just gone offline.
+    private Component nameComponent(UUID uuid) {
+        Component name = displayNameOf(uuid);
+        return name != null ? name : Component.text(uuid.toString());
+    }
+
+    private void sweepCooldowns() {
+        lifecycle.sweep(currentTick());
+        long now = System.currentTimeMillis();
+        safeLocations.sweep(now);
+        awaitingRestore.removeIf(pending -> pending.expiresAt() <= now);
+    }
+
+    private int currentTick() {
+        return lifecycle.currentTick();
+    }
+
+    private void notifyExpired(TeleportRequest request) {
+        // Look the players up again rather than holding on to Player objects for the whole timeout.
+        // Either may be on another server, whose copy of the request expires there.
+        Player requester = sessions.getPlayer(request.getRequester());
+        Player target = sessions.getPlayer(request.getTarget());
+        Component requesterName = displayNameOf(request.getRequester());
+        Component targetName = displayNameOf(request.getTarget());
+
+        if (requester != null && targetName != null) {
+            sendMessage(requester, messages.get(Message.REQUEST_EXPIRED_SENT, targetName));
+        }
+        if (target != null && requesterName != null) {
+            sendMessage(target, messages.get(Message.REQUEST_EXPIRED_RECEIVED, requesterName));
+        }
+    }
+
+    /**
+     * Runs the task on the thread that owns the player: straight away if this thread already
+     * does, otherwise on the player's own scheduler. On Paper this is always the main thread.
+     */
+    private void runFor(Player player, Runnable task) {
+        if (Bukkit.isOwnedByCurrentRegion(player)) {
+            task.run();
+        } else {
+            player.getScheduler().run(this, scheduledTask -> task.run(), null);
         }
+    }
 
-        return requesters;
+    private void sendMessage(Player player, Component message) {
+        runFor(player, () -> player.sendMessage(message));
     }
 
-    private void cancelExpirationTask(String requestKey) {
-        BukkitTask task = expirationTasks.remove(requestKey);
-        if (task != null) {
-            task.cancel();
+    /**
+     * Journals the lifecycle's events and tells the players involved.
+     */
+    private final class LifecycleListener implements RequestLifecycle.Listener {
+
+        @Override
+        public void created(TeleportRequest request, long expiresAt) {
+            if (journal != null) {
+                journal.recordCreate(request, expiresAt);
+            }
+        }
+
+        @Override
+        public void cooldownStarted(UUID player, long expiresAt) {
+            if (journal != null) {
+                journal.recordCooldown(player, expiresAt);
+            }
+        }
+
+        @Override
+        public void resolved(TeleportRequest request) {
+            teleportPipeline.release(request);
+            if (journal != null) {
+                journal.recordResolve(request);
+            }
+        }
+
+        @Override
+        public void expired(TeleportRequest request) {
+            notifyExpired(request);
+        }
+
+        @Override
+        public void evicted(TeleportRequest request) {
+            Player requester = sessions.getPlayer(request.getRequester());
+            Component targetName = displayNameOf(request.getTarget());
+            if (requester != null && targetName != null) {
+                sendMessage(requester, messages.get(Message.REQUEST_EVICTED, targetName));
+            }
+        }
+
+        @Override
+        public void received(TeleportRequest request, String requesterName, long expiresAt) {
+            receiveRemoteRequest(request, requesterName, expiresAt);
+        }
+
+        @Override
+        public void resolvedRemotely(String origin, NetworkMessage.Type type, TeleportRequest request) {
+            handleRemoteResolution(origin, type, request);
         }
     }
 }
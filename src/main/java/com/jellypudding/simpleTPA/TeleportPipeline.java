@@ -0,0 +1,249 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.plugin.Plugin;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Performs teleports through Paper's asynchronous chunk loading and keeps the destination
+ * chunk loaded while a request is pending or a warmup is running, so the teleport itself
+ * doesn't block the tick.
+ *
+ * <p>Chunk tickets are added and removed on the region that owns the chunk, and teleports
+ * are started on the teleporting player's own scheduler, so this works on Folia as well.
+ *
+ * <p>At most a configured number of teleports and chunk loads are started per tick; the rest
+ * wait in order for a later tick, so accepting many requests at once is spread out instead of
+ * landing on a single tick.
+ */
+final class TeleportPipeline {
+
+    private final Plugin plugin;
+
+    // Number of holders with a ticket on each chunk. A plugin only has one ticket per
+    // chunk, so it is removed once the last holder using it is gone.
+    private final HashMap<ChunkKey, Integer> ticketCounts = new HashMap<>();
+
+    // Teleports and chunk loads waiting for a tick with room to start them, and how many were
+    // started this tick. Guarded by pendingStarts.
+    private final ArrayDeque<Runnable> pendingStarts = new ArrayDeque<>();
+    private int startsThisTick;
+    private volatile int maxStartsPerTick;
+
+    TeleportPipeline(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Sets how many teleports and chunk loads may start per tick; 0 for no limit.
+     */
+    void setMaxStartsPerTick(int maxStartsPerTick) {
+        this.maxStartsPerTick = Math.max(0, maxStartsPerTick);
+    }
+
+    /**
+     * Starts as many queued teleports and chunk loads as this tick allows. Called once per tick.
+     */
+    void tick() {
+        List<Runnable> ready = new ArrayList<>();
+        synchronized (pendingStarts) {
+            startsThisTick = 0;
+            int max = maxStartsPerTick;
+            while (!pendingStarts.isEmpty() && (max == 0 || startsThisTick < max)) {
+                ready.add(pendingStarts.poll());
+                startsThisTick++;
+            }
+        }
+
+        for (Runnable start : ready) {
+            start.run();
+        }
+    }
+
+    // Runs the start now if this tick still has room and nothing is queued ahead of it, otherwise queues it.
+    private void startWhenAllowed(Runnable start) {
+        synchronized (pendingStarts) {
+            int max = maxStartsPerTick;
+            if (!pendingStarts.isEmpty() || (max > 0 && startsThisTick >= max)) {
+                pendingStarts.add(start);
+                return;
+            }
+            startsThisTick++;
+        }
+        start.run();
+    }
+
+    /**
+     * Starts loading the chunk at the given location and keeps it loaded until the holder is released.
+     */
+    void preload(ChunkTicketHolder holder, Location location) {
+        World world = location.getWorld();
+        ChunkKey key = new ChunkKey(world.getUID(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+
+        synchronized (this) {
+            // The holder may have been resolved before the target's scheduler got to this.
+            if (holder.isResolved() || holder.getChunkTicket() != null) {
+                return;
+            }
+            holder.setChunkTicket(key);
+            if (ticketCounts.merge(key, 1, Integer::sum) > 1) {
+                return;
+            }
+        }
+
+        startWhenAllowed(() -> Bukkit.getRegionScheduler().execute(plugin, world, key.x(), key.z(), () -> {
+            // The last holder may have been resolved while the load was queued.
+            synchronized (this) {
+                if (!ticketCounts.containsKey(key)) {
+                    return;
+                }
+            }
+            world.getChunkAtAsync(key.x(), key.z()).thenAccept(chunk -> {
+                // Or while the chunk was loading.
+                synchronized (this) {
+                    if (ticketCounts.containsKey(key)) {
+                        world.addPluginChunkTicket(key.x(), key.z(), plugin);
+                    }
+                }
+            });
+        }));
+    }
+
+    /**
+     * Loads a chunk without keeping it loaded, counting against the same per-tick limit as
+     * teleports and preloads. The future completes on the region that owns the chunk.
+     */
+    CompletableFuture<Chunk> loadChunk(World world, int x, int z) {
+        CompletableFuture<Chunk> result = new CompletableFuture<>();
+        startWhenAllowed(() -> Bukkit.getRegionScheduler().execute(plugin, world, x, z, () ->
+            world.getChunkAtAsync(x, z).whenComplete((chunk, throwable) -> {
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(chunk);
+                }
+            })));
+        return result;
+    }
+
+    /**
+     * Drops the chunk ticket held for the holder, if any.
+     */
+    void release(ChunkTicketHolder holder) {
+        ChunkKey key;
+        synchronized (this) {
+            key = holder.getChunkTicket();
+            if (key == null) {
+                return;
+            }
+            holder.setChunkTicket(null);
+
+            Integer count = ticketCounts.get(key);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                ticketCounts.put(key, count - 1);
+                return;
+            }
+            ticketCounts.remove(key);
+        }
+
+        removeTicket(key);
+    }
+
+    /**
+     * Teleports the player without blocking on chunk loads. The teleport is started on the
+     * player's own scheduler, on a later tick if this one has no room left.
+     *
+     * @return a future completing with whether the teleport succeeded
+     */
+    CompletableFuture<Boolean> teleport(Player player, Location destination) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Runnable start = () -> {
+            try {
+                player.teleportAsync(destination, PlayerTeleportEvent.TeleportCause.COMMAND).whenComplete((success, throwable) -> {
+                    if (throwable != null) {
+                        result.completeExceptionally(throwable);
+                    } else {
+                        result.complete(success);
+                    }
+                });
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        };
+
+        startWhenAllowed(() -> {
+            if (Bukkit.isOwnedByCurrentRegion(player)) {
+                start.run();
+            } else if (player.getScheduler().run(plugin, task -> start.run(), () -> result.complete(false)) == null) {
+                // The player was removed before the teleport could be scheduled.
+                result.complete(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Drops queued teleports and chunk loads and removes every chunk ticket this pipeline added.
+     */
+    void clear() {
+        synchronized (pendingStarts) {
+            pendingStarts.clear();
+            startsThisTick = 0;
+        }
+        synchronized (this) {
+            for (ChunkKey key : ticketCounts.keySet()) {
+                World world = Bukkit.getWorld(key.worldId());
+                if (world != null) {
+                    // The plugin is being disabled, so there is no scheduler to hand this to.
+                    world.removePluginChunkTicket(key.x(), key.z(), plugin);
+                }
+            }
+            ticketCounts.clear();
+        }
+    }
+
+    private void removeTicket(ChunkKey key) {
+        World world = Bukkit.getWorld(key.worldId());
+        if (world != null) {
+            Bukkit.getRegionScheduler().execute(plugin, world, key.x(), key.z(), () -> {
+                synchronized (this) {
+                    // Another holder may have taken a ticket on the same chunk in the meantime.
+                    if (!ticketCounts.containsKey(key)) {
+                        world.removePluginChunkTicket(key.x(), key.z(), plugin);
+                    }
+                }
+            });
+        }
+    }
+
+    record ChunkKey(UUID worldId, int x, int z) {
+    }
+
+    /**
+     * Something that keeps a destination chunk loaded until it is resolved, such as a pending
+     * request or a running warmup. The pipeline reads and writes the ticket under its own lock.
+     */
+    interface ChunkTicketHolder {
+
+        boolean isResolved();
+
+        ChunkKey getChunkTicket();
+
+        void setChunkTicket(ChunkKey chunkTicket);
+    }
+}
@@ -0,0 +1,100 @@
+package com.jellypudding.simpleTPA;
+
+import java.util.UUID;
+
+/**
+ * A single pending teleport request from a requester to a target, or for /tpahere, asking the
+ * target to come to the requester.
+ */
+final class TeleportRequest implements TpaRequest, TeleportPipeline.ChunkTicketHolder {
+
+    private final UUID requester;
+    private final UUID target;
+    private final long createdAt;
+
+    // Set for /tpahere, where the target comes to the requester instead.
+    private final boolean here;
+
+    // Position in the expiry wheel; a slot of -1 means the request is not scheduled.
+    private long expiresAtTick;
+    private int wheelSlot = -1;
+    private int wheelPosition;
+
+    // Destination chunk kept loaded while the request is pending, if any.
+    private TeleportPipeline.ChunkKey chunkTicket;
+
+    // Set once the request has left the store, for work that was queued on another thread.
+    private volatile boolean resolved;
+
+    TeleportRequest(UUID requester, UUID target, long createdAt, boolean here) {
+        this.requester = requester;
+        this.target = target;
+        this.createdAt = createdAt;
+        this.here = here;
+    }
+
+    @Override
+    public UUID getRequester() {
+        return requester;
+    }
+
+    @Override
+    public UUID getTarget() {
+        return target;
+    }
+
+    @Override
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public boolean isHere() {
+        return here;
+    }
+
+    long getExpiresAtTick() {
+        return expiresAtTick;
+    }
+
+    int getWheelSlot() {
+        return wheelSlot;
+    }
+
+    int getWheelPosition() {
+        return wheelPosition;
+    }
+
+    void setExpiry(long expiresAtTick, int wheelSlot, int wheelPosition) {
+        this.expiresAtTick = expiresAtTick;
+        this.wheelSlot = wheelSlot;
+        this.wheelPosition = wheelPosition;
+    }
+
+    void setWheelPosition(int wheelPosition) {
+        this.wheelPosition = wheelPosition;
+    }
+
+    void clearExpiry() {
+        this.wheelSlot = -1;
+    }
+
+    @Override
+    public boolean isResolved() {
+        return resolved;
+    }
+
+    void markResolved() {
+        this.resolved = true;
+    }
+
+    @Override
+    public TeleportPipeline.ChunkKey getChunkTicket() {
+        return chunkTicket;
+    }
+
+    @Override
+    public void setChunkTicket(TeleportPipeline.ChunkKey chunkTicket) {
+        this.chunkTicket = chunkTicket;
+    }
+}
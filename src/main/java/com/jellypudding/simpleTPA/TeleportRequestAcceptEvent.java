@@ -0,0 +1,54 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+/**
+ * Called before a request is accepted, on the accepting player's thread. Cancelling it leaves
+ * the request pending without a message, so the listener should tell the player why.
+ */
+public final class TeleportRequestAcceptEvent extends Event implements Cancellable {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final TpaRequest request;
+    private final Player player;
+    private boolean cancelled;
+
+    TeleportRequestAcceptEvent(TpaRequest request, Player player) {
+        this.request = request;
+        this.player = player;
+    }
+
+    public TpaRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns the player accepting the request, its target.
+     */
+    public Player getPlayer() {
+        return player;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
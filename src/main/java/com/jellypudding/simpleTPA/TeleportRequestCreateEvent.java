@@ -0,0 +1,78 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.HandlerList;
+
+import java.util.UUID;
+
+/**
+ * Called on the requester's server before a request is sent, on the requester's thread.
+ * Cancelling it stops the request without a message, so the listener should tell the
+ * requester why.
+ */
+public final class TeleportRequestCreateEvent extends Event implements Cancellable {
+
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final Player requester;
+    private final UUID targetId;
+    private final String targetName;
+    private final Player target;
+    private final boolean here;
+    private boolean cancelled;
+
+    TeleportRequestCreateEvent(Player requester, UUID targetId, String targetName, Player target, boolean here) {
+        this.requester = requester;
+        this.targetId = targetId;
+        this.targetName = targetName;
+        this.target = target;
+        this.here = here;
+    }
+
+    public Player getRequester() {
+        return requester;
+    }
+
+    public UUID getTargetId() {
+        return targetId;
+    }
+
+    public String getTargetName() {
+        return targetName;
+    }
+
+    /**
+     * Returns the target, or null if they are on another server behind the proxy.
+     */
+    public Player getTarget() {
+        return target;
+    }
+
+    /**
+     * Whether this is a /tpahere request, which brings the target to the requester.
+     */
+    public boolean isHere() {
+        return here;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
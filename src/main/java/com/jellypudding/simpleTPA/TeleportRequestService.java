@@ -0,0 +1,79 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Request API for other plugins, registered with Bukkit's services manager while SimpleTPA is
+ * enabled:
+ *
+ * <pre>{@code
+ * TeleportRequestService tpa = Bukkit.getServicesManager().load(TeleportRequestService.class);
+ * }</pre>
+ *
+ * <p>Lookups and counts read the request store directly and don't allocate; the list methods
+ * return copies. Lookups are safe from any thread. The methods that create or resolve requests
+ * message the players and fire the events just as the commands do, and must be called on the
+ * thread that owns the acting player (the main thread on Paper).
+ */
+public interface TeleportRequestService {
+
+    /**
+     * Returns the request pending from requester to target, or null if there is none.
+     */
+    TpaRequest getRequest(UUID requester, UUID target);
+
+    boolean hasRequest(UUID requester, UUID target);
+
+    int countIncoming(UUID target);
+
+    int countOutgoing(UUID requester);
+
+    /**
+     * Returns the number of requests pending on this server.
+     */
+    int countPending();
+
+    /**
+     * Returns the requests pending to the target, oldest first.
+     */
+    List<TpaRequest> getIncoming(UUID target);
+
+    /**
+     * Returns the requests pending from the requester, oldest first.
+     */
+    List<TpaRequest> getOutgoing(UUID requester);
+
+    /**
+     * Sends a request from one player on this server to another, as /tpa or, with {@code here}
+     * set, /tpahere would. The requester's cooldown, the rate limits and the dimension check
+     * are skipped; the target's inbox cap still applies. Call on the requester's thread.
+     *
+     * @return the new request, or null if one is already pending or a listener cancelled it
+     */
+    TpaRequest createRequest(Player requester, Player target, boolean here);
+
+    /**
+     * Accepts a pending request as the target would with /tpaccept. The target must be on
+     * this server; call on their thread.
+     *
+     * @return whether the request was pending and a listener didn't cancel accepting it
+     */
+    boolean acceptRequest(UUID requester, UUID target);
+
+    /**
+     * Denies a pending request as the target would with /tpdeny.
+     *
+     * @return whether the request was pending
+     */
+    boolean denyRequest(UUID requester, UUID target);
+
+    /**
+     * Cancels a pending request as the requester would with /tpacancel.
+     *
+     * @return whether the request was pending
+     */
+    boolean cancelRequest(UUID requester, UUID target);
+}
@@ -0,0 +1,262 @@
+package com.jellypudding.simpleTPA;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds pending teleport requests indexed both by requester and by target, so outgoing
+ * and incoming lookups only touch the requests that belong to one player.
+ *
+ * <p>The store is safe to use from several region threads at once. Each player's entries are
+ * guarded by one of a fixed set of striped locks; operations that touch two players take both
+ * stripes in index order, so commands from unrelated players never contend.
+ */
+final class TeleportRequestStore {
+
+    private static final int STRIPES = 64;
+
+    private final Object[] locks = new Object[STRIPES];
+
+    // Outgoing requests: requester UUID -> (target UUID -> request), in the order they were sent.
+    private final ConcurrentHashMap<UUID, LinkedHashMap<UUID, TeleportRequest>> byRequester = new ConcurrentHashMap<>();
+
+    // Incoming requests: target UUID -> (requester UUID -> request), in the order they were received.
+    private final ConcurrentHashMap<UUID, LinkedHashMap<UUID, TeleportRequest>> byTarget = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    TeleportRequestStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    TeleportRequest get(UUID requester, UUID target) {
+        synchronized (lockFor(requester)) {
+            LinkedHashMap<UUID, TeleportRequest> outgoing = byRequester.get(requester);
+            return outgoing == null ? null : outgoing.get(target);
+        }
+    }
+
+    boolean contains(UUID requester, UUID target) {
+        return get(requester, target) != null;
+    }
+
+    TeleportRequest add(UUID requester, UUID target, long createdAt) {
+        return add(requester, target, createdAt, false);
+    }
+
+    /**
+     * Adds a new request. A requester can have only one request pending to each target,
+     * whichever way it teleports.
+     *
+     * @return the created request, or null if the requester already has one pending to the target
+     */
+    TeleportRequest add(UUID requester, UUID target, long createdAt, boolean here) {
+        int first = stripe(requester);
+        int second = stripe(target);
+        synchronized (locks[Math.min(first, second)]) {
+            synchronized (locks[Math.max(first, second)]) {
+                LinkedHashMap<UUID, TeleportRequest> outgoing = byRequester.computeIfAbsent(requester, k -> new LinkedHashMap<>());
+                if (outgoing.containsKey(target)) {
+                    return null;
+                }
+
+                TeleportRequest request = new TeleportRequest(requester, target, createdAt, here);
+                outgoing.put(target, request);
+                byTarget.computeIfAbsent(target, k -> new LinkedHashMap<>()).put(requester, request);
+                size.incrementAndGet();
+                return request;
+            }
+        }
+    }
+
+    /**
+     * Removes the request from requester to target.
+     *
+     * @return the removed request, or null if there was none
+     */
+    TeleportRequest remove(UUID requester, UUID target) {
+        return remove(requester, target, null);
+    }
+
+    /**
+     * Removes the given request if it is still the one stored for its requester and target.
+     */
+    boolean remove(TeleportRequest request) {
+        return remove(request.getRequester(), request.getTarget(), request) != null;
+    }
+
+    private TeleportRequest remove(UUID requester, UUID target, TeleportRequest expected) {
+        int first = stripe(requester);
+        int second = stripe(target);
+        synchronized (locks[Math.min(first, second)]) {
+            synchronized (locks[Math.max(first, second)]) {
+                LinkedHashMap<UUID, TeleportRequest> outgoing = byRequester.get(requester);
+                if (outgoing == null) {
+                    return null;
+                }
+
+                TeleportRequest request = outgoing.get(target);
+                if (request == null || (expected != null && request != expected)) {
+                    return null;
+                }
+
+                outgoing.remove(target);
+                if (outgoing.isEmpty()) {
+                    byRequester.remove(requester);
+                }
+
+                LinkedHashMap<UUID, TeleportRequest> incoming = byTarget.get(target);
+                if (incoming != null) {
+                    incoming.remove(requester);
+                    if (incoming.isEmpty()) {
+                        byTarget.remove(target);
+                    }
+                }
+
+                size.decrementAndGet();
+                return request;
+            }
+        }
+    }
+
+    /**
+     * Returns a snapshot of the requests sent by the given player, oldest first.
+     */
+    List<TeleportRequest> getOutgoing(UUID requester) {
+        synchronized (lockFor(requester)) {
+            LinkedHashMap<UUID, TeleportRequest> outgoing = byRequester.get(requester);
+            return outgoing == null ? Collections.emptyList() : new ArrayList<>(outgoing.values());
+        }
+    }
+
+    /**
+     * Returns a snapshot of the requests sent to the given player, oldest first.
+     */
+    List<TeleportRequest> getIncoming(UUID target) {
+        synchronized (lockFor(target)) {
+            LinkedHashMap<UUID, TeleportRequest> incoming = byTarget.get(target);
+            return incoming == null ? Collections.emptyList() : new ArrayList<>(incoming.values());
+        }
+    }
+
+    int countIncoming(UUID target) {
+        synchronized (lockFor(target)) {
+            LinkedHashMap<UUID, TeleportRequest> incoming = byTarget.get(target);
+            return incoming == null ? 0 : incoming.size();
+        }
+    }
+
+    int countOutgoing(UUID requester) {
+        synchronized (lockFor(requester)) {
+            LinkedHashMap<UUID, TeleportRequest> outgoing = byRequester.get(requester);
+            return outgoing == null ? 0 : outgoing.size();
+        }
+    }
+
+    /**
+     * Returns the oldest request sent to the given player, or null if there is none.
+     */
+    TeleportRequest getOldestIncoming(UUID target) {
+        synchronized (lockFor(target)) {
+            LinkedHashMap<UUID, TeleportRequest> incoming = byTarget.get(target);
+            return incoming == null || incoming.isEmpty() ? null : incoming.values().iterator().next();
+        }
+    }
+
+    /**
+     * Returns the UUIDs of the players who have sent requests to the given player, oldest first.
+     */
+    List<UUID> getRequesters(UUID target) {
+        synchronized (lockFor(target)) {
+            LinkedHashMap<UUID, TeleportRequest> incoming = byTarget.get(target);
+            return incoming == null ? new ArrayList<>() : new ArrayList<>(incoming.keySet());
+        }
+    }
+
+    /**
+     * Removes every request sent by the given player.
+     *
+     * @return the removed requests
+     */
+    List<TeleportRequest> removeOutgoing(UUID requester) {
+        return removeEach(getOutgoing(requester));
+    }
+
+    /**
+     * Removes every request sent by or to the given player.
+     *
+     * @return the removed requests
+     */
+    List<TeleportRequest> removeAll(UUID player) {
+        List<TeleportRequest> candidates;
+        synchronized (lockFor(player)) {
+            LinkedHashMap<UUID, TeleportRequest> outgoing = byRequester.get(player);
+            LinkedHashMap<UUID, TeleportRequest> incoming = byTarget.get(player);
+            if (outgoing == null && incoming == null) {
+                return Collections.emptyList();
+            }
+
+            candidates = new ArrayList<>();
+            if (outgoing != null) {
+                candidates.addAll(outgoing.values());
+            }
+            if (incoming != null) {
+                candidates.addAll(incoming.values());
+            }
+        }
+        return removeEach(candidates);
+    }
+
+    // Only requests this call actually removed are returned, in case another thread got to some first.
+    private List<TeleportRequest> removeEach(List<TeleportRequest> candidates) {
+        if (candidates.isEmpty()) {
+            return candidates;
+        }
+
+        List<TeleportRequest> removed = new ArrayList<>(candidates.size());
+        for (TeleportRequest request : candidates) {
+            if (remove(request)) {
+                removed.add(request);
+            }
+        }
+        return removed;
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Returns every pending request.
+     */
+    List<TeleportRequest> getAll() {
+        List<TeleportRequest> all = new ArrayList<>(size());
+        for (UUID requester : byRequester.keySet()) {
+            all.addAll(getOutgoing(requester));
+        }
+        return all;
+    }
+
+    void clear() {
+        byRequester.clear();
+        byTarget.clear();
+        size.set(0);
+    }
+
+    private Object lockFor(UUID player) {
+        return locks[stripe(player)];
+    }
+
+    private static int stripe(UUID player) {
+        long bits = player.getMostSignificantBits() ^ player.getLeastSignificantBits();
+        int hash = (int) (bits ^ (bits >>> 32));
+        return (hash ^ (hash >>> 16)) & (STRIPES - 1);
+    }
+}
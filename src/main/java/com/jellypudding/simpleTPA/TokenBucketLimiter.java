@@ -0,0 +1,72 @@
+package com.jellypudding.simpleTPA;
+
+import java.util.UUID;
+
+/**
+ * Per-player token bucket, implemented as the generic cell rate algorithm: instead of a token
+ * count, each player has a single "theoretical arrival" tick that moves forward by one refill
+ * interval per request. A request is allowed while that tick is less than a full bucket ahead
+ * of now. The ticks live in a {@link CooldownTracker}, so a player costs one int in its table,
+ * and a full bucket is the same as an expired deadline that the next sweep drops.
+ */
+final class TokenBucketLimiter {
+
+    private final CooldownTracker arrivals = new CooldownTracker();
+
+    private int burst;
+    private int refillTicks;
+
+    /**
+     * @param burst how many requests can be made at once; 0 disables the limit
+     * @param refillTicks how long it takes for one more request to become available
+     */
+    synchronized void configure(int burst, int refillTicks) {
+        this.burst = Math.max(0, burst);
+        this.refillTicks = Math.max(1, refillTicks);
+    }
+
+    /**
+     * Takes a token for the player if one is available.
+     */
+    synchronized boolean tryAcquire(UUID player, int now) {
+        if (burst == 0) {
+            return true;
+        }
+
+        int ahead = arrivals.remaining(player, now);
+        if (ahead > (burst - 1) * refillTicks) {
+            return false;
+        }
+        arrivals.start(player, now, ahead + refillTicks);
+        return true;
+    }
+
+    /**
+     * Gives back a token taken by {@link #tryAcquire} for a request that was refused afterwards.
+     */
+    synchronized void refund(UUID player, int now) {
+        if (burst == 0) {
+            return;
+        }
+
+        int ahead = arrivals.remaining(player, now) - refillTicks;
+        if (ahead > 0) {
+            arrivals.start(player, now, ahead);
+        } else {
+            arrivals.clear(player);
+        }
+    }
+
+    synchronized void sweep(int now) {
+        arrivals.sweep(now);
+    }
+
+    // Number of players with a bucket that isn't full yet, counting any not swept since they refilled.
+    synchronized int size() {
+        return arrivals.size();
+    }
+
+    synchronized void clear() {
+        arrivals.clearAll();
+    }
+}
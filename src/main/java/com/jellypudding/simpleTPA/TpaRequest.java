@@ -0,0 +1,28 @@
+package com.jellypudding.simpleTPA;
+
+import java.util.UUID;
+
+/**
+ * A teleport request as seen by other plugins, through {@link TeleportRequestService} and the
+ * request events. This is the plugin's own record rather than a copy, so {@link #isResolved()}
+ * reflects whether it has since been accepted, denied, cancelled or expired.
+ */
+public interface TpaRequest {
+
+    UUID getRequester();
+
+    UUID getTarget();
+
+    /**
+     * Wall-clock time the request was created, in milliseconds.
+     */
+    long getCreatedAt();
+
+    /**
+     * Whether accepting teleports the target to the requester (/tpahere) rather than the
+     * requester to the target (/tpa).
+     */
+    boolean isHere();
+
+    boolean isResolved();
+}
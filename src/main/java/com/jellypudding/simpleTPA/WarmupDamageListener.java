@@ -0,0 +1,27 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageEvent;
+
+/**
+ * Cancels a player's teleport warmup when they take damage. Damage events are far rarer than
+ * movement, and this only does a map lookup, so it is cheap to leave registered.
+ */
+final class WarmupDamageListener implements Listener {
+
+    private final WarmupTracker warmups;
+
+    WarmupDamageListener(WarmupTracker warmups) {
+        this.warmups = warmups;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityDamage(EntityDamageEvent event) {
+        if (event.getEntity() instanceof Player player && warmups.isWarmingUp(player.getUniqueId())) {
+            warmups.cancel(player.getUniqueId(), WarmupTracker.Outcome.DAMAGED);
+        }
+    }
+}
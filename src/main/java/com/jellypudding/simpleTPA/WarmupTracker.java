@@ -0,0 +1,207 @@
+package com.jellypudding.simpleTPA;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Tracks accepted teleports that are waiting out a warmup. Instead of listening to every
+ * movement event on the server, one repeating task compares the block position of just the
+ * players in warmup with where they started, so the cost scales with the number of warmups.
+ *
+ * <p>Each check runs on the thread that owns the player: inline on Paper, on the player's
+ * scheduler on Folia. A warmup is finished by whichever caller removes it from the map first,
+ * so a move, a hit and the deadline can't both act on it.
+ */
+final class WarmupTracker {
+
+    enum Outcome {
+        COMPLETED,
+        MOVED,
+        DAMAGED,
+        // The player left the server.
+        LEFT,
+        // The player they were being teleported to left the server.
+        TARGET_LEFT,
+        // Another accepted request started a new warmup for the same player.
+        REPLACED
+    }
+
+    private final Plugin plugin;
+    private final BiConsumer<Warmup, Outcome> onFinish;
+    private final ConcurrentHashMap<UUID, Warmup> warmups = new ConcurrentHashMap<>();
+
+    /**
+     * @param onFinish called once per warmup with how it ended; for COMPLETED it runs on the
+     *                 player's own thread
+     */
+    WarmupTracker(Plugin plugin, BiConsumer<Warmup, Outcome> onFinish) {
+        this.plugin = plugin;
+        this.onFinish = onFinish;
+    }
+
+    /**
+     * Starts a warmup for the requester, who must be on the current thread, ending at the given tick.
+     */
+    Warmup start(Player requester, Player target, Location destination, long deadlineTick) {
+        Warmup warmup = new Warmup(requester, target, destination, deadlineTick);
+        Warmup previous = warmups.put(requester.getUniqueId(), warmup);
+        if (previous != null && previous.finish()) {
+            onFinish.accept(previous, Outcome.REPLACED);
+        }
+        return warmup;
+    }
+
+    boolean isWarmingUp(UUID player) {
+        return warmups.containsKey(player);
+    }
+
+    /**
+     * Ends the player's warmup, if they have one, without teleporting them.
+     */
+    void cancel(UUID player, Outcome reason) {
+        Warmup warmup = warmups.get(player);
+        if (warmup != null) {
+            finish(warmup, reason);
+        }
+    }
+
+    /**
+     * Ends every warmup teleporting someone to the given player.
+     */
+    void cancelTo(UUID target, Outcome reason) {
+        if (warmups.isEmpty()) {
+            return;
+        }
+        for (Warmup warmup : warmups.values()) {
+            if (warmup.target.getUniqueId().equals(target)) {
+                finish(warmup, reason);
+            }
+        }
+    }
+
+    /**
+     * Checks every player in warmup. Called once per tick.
+     */
+    void tick(long currentTick) {
+        if (warmups.isEmpty()) {
+            return;
+        }
+
+        for (Warmup warmup : warmups.values()) {
+            Player player = warmup.requester;
+            if (Bukkit.isOwnedByCurrentRegion(player)) {
+                check(warmup, currentTick);
+            } else {
+                player.getScheduler().run(plugin, task -> check(warmup, currentTick), null);
+            }
+        }
+    }
+
+    int size() {
+        return warmups.size();
+    }
+
+    void clear() {
+        warmups.values().forEach(Warmup::finish);
+        warmups.clear();
+    }
+
+    private void check(Warmup warmup, long currentTick) {
+        if (warmup.isResolved()) {
+            return;
+        }
+
+        Location location = warmup.requester.getLocation(warmup.scratch);
+        if (location.getBlockX() != warmup.blockX || location.getBlockY() != warmup.blockY
+                || location.getBlockZ() != warmup.blockZ || !location.getWorld().getUID().equals(warmup.worldId)) {
+            finish(warmup, Outcome.MOVED);
+        } else if (currentTick >= warmup.deadlineTick) {
+            finish(warmup, Outcome.COMPLETED);
+        }
+    }
+
+    private void finish(Warmup warmup, Outcome outcome) {
+        if (warmups.remove(warmup.requester.getUniqueId(), warmup) && warmup.finish()) {
+            onFinish.accept(warmup, outcome);
+        }
+    }
+
+    /**
+     * One player's warmup, holding the destination chunk loaded until it ends.
+     */
+    static final class Warmup implements TeleportPipeline.ChunkTicketHolder {
+
+        private final Player requester;
+        private final Player target;
+        private final Location destination;
+        private final long deadlineTick;
+
+        // Block the requester started on; leaving it cancels the warmup.
+        private final UUID worldId;
+        private final int blockX;
+        private final int blockY;
+        private final int blockZ;
+
+        // Reused for position checks so they don't allocate.
+        private final Location scratch;
+
+        private TeleportPipeline.ChunkKey chunkTicket;
+        private volatile boolean finished;
+
+        private Warmup(Player requester, Player target, Location destination, long deadlineTick) {
+            this.requester = requester;
+            this.target = target;
+            this.destination = destination;
+            this.deadlineTick = deadlineTick;
+
+            Location start = requester.getLocation();
+            this.worldId = start.getWorld().getUID();
+            this.blockX = start.getBlockX();
+            this.blockY = start.getBlockY();
+            this.blockZ = start.getBlockZ();
+            this.scratch = start;
+        }
+
+        Player getRequester() {
+            return requester;
+        }
+
+        Player getTarget() {
+            return target;
+        }
+
+        Location getDestination() {
+            return destination;
+        }
+
+        // Returns false if it was already finished.
+        private synchronized boolean finish() {
+            if (finished) {
+                return false;
+            }
+            finished = true;
+            return true;
+        }
+
+        @Override
+        public boolean isResolved() {
+            return finished;
+        }
+
+        @Override
+        public TeleportPipeline.ChunkKey getChunkTicket() {
+            return chunkTicket;
+        }
+
+        @Override
+        public void setChunkTicket(TeleportPipeline.ChunkKey chunkTicket) {
+            this.chunkTicket = chunkTicket;
+        }
+    }
+}